@@ -0,0 +1,28 @@
+#!/usr/bin/env bash
+# Opens many concurrent, rate limited downloads of one public file to check the node doesn't run out of threads.
+# Compare a run with spring.threads.virtual.enabled=false against one with true (Java 21+).
+#
+#   benchmarks/slow-downloads.sh <file-id> [clients=2000] [rate=50k] [base-url=http://localhost:8080]
+#
+# While it runs, watch /actuator/metrics/jvm.threads.live and /actuator/metrics/tomcat.threads.busy.
+set -euo pipefail
+
+FILE_ID=${1:?usage: $0 <file-id> [clients] [rate] [base-url]}
+CLIENTS=${2:-2000}
+RATE=${3:-50k}
+BASE_URL=${4:-http://localhost:8080}
+
+ulimit -n 65535 2>/dev/null || true
+results=$(mktemp)
+
+start=$(date +%s)
+for _ in $(seq "$CLIENTS"); do
+  curl -s -o /dev/null --limit-rate "$RATE" -w '%{http_code}\n' "$BASE_URL/files/download/$FILE_ID" >> "$results" &
+done
+wait
+end=$(date +%s)
+
+echo "clients:  $CLIENTS at $RATE/s each"
+echo "duration: $((end - start))s"
+sort "$results" | uniq -c | awk '{print "status " $2 ": " $1}'
+rm -f "$results"
@@ -8,6 +8,8 @@ const MyFiles = () => {
   const [files, setFiles] = useState([])
   const [filteredFiles, setFilteredFiles] = useState([])
   const [loading, setLoading] = useState(true)
+  const [nextCursor, setNextCursor] = useState(null)
+  const [loadingMore, setLoadingMore] = useState(false)
   const [searchTerm, setSearchTerm] = useState('')
   const [filterType, setFilterType] = useState('all') // all, public, private
   const [deleteLoading, setDeleteLoading] = useState({})
@@ -24,7 +26,8 @@ const MyFiles = () => {
   const fetchFiles = async () => {
     try {
       const response = await fileAPI.getMyFiles()
-      setFiles(response.data || [])
+      setFiles(response.data?.files || [])
+      setNextCursor(response.data?.nextCursor || null)
     } catch (error) {
       console.error('Error fetching files:', error)
     } finally {
@@ -32,6 +35,21 @@ const MyFiles = () => {
     }
   }
 
+  // /files/my is paged, the next page continues after the last file shown
+  const loadMore = async () => {
+    setLoadingMore(true)
+    try {
+      const response = await fileAPI.getMyFiles(nextCursor)
+      setFiles(prev => [...prev, ...(response.data?.files || [])])
+      setNextCursor(response.data?.nextCursor || null)
+    } catch (error) {
+      console.error('Error fetching files:', error)
+      toast.error('Failed to load more files')
+    } finally {
+      setLoadingMore(false)
+    }
+  }
+
   const filterFiles = () => {
     let filtered = files
 
@@ -154,7 +172,7 @@ const MyFiles = () => {
         </div>
         
         <div className="mt-4 text-sm text-gray-600">
-          Showing {filteredFiles.length} of {files.length} files
+          Showing {filteredFiles.length} of {files.length}{nextCursor ? '+' : ''} files
         </div>
       </div>
 
@@ -293,6 +311,14 @@ const MyFiles = () => {
         </div>
       )}
 
+      {nextCursor && (
+        <div className="text-center">
+          <button onClick={loadMore} disabled={loadingMore} className="btn-secondary disabled:opacity-50">
+            {loadingMore ? <LoadingSpinner size="small" /> : 'Load more files'}
+          </button>
+        </div>
+      )}
+
       {/* Need Credits Banner */}
       <div className="card bg-purple-50 border-purple-200">
         <div className="flex items-center justify-between">
@@ -70,10 +70,12 @@ export const fileAPI = {
       }
     )
   },
-  getMyFiles: () => {
+  // one page of files; pass the previous response's nextCursor to get the next one
+  getMyFiles: (cursor) => {
     return axios.get(
       process.env.NODE_ENV === 'production' ? '/files/my' : 'http://localhost:8080/files/my',
       {
+        params: cursor ? { cursor } : {},
         headers: {
           Authorization: `Bearer ${Cookies.get('token')}`,
         },
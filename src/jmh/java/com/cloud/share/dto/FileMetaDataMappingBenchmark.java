@@ -0,0 +1,81 @@
+package com.cloud.share.dto;
+
+import com.cloud.share.entity.FileMetaDataDocument;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// the document -> dto mapping /files/my runs for every row of a listing: ModelMapper (the old path)
+// against the generated mapper, from entities and from the projected rows listings now read
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileMetaDataMappingBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int entries;
+
+    private ModelMapper mapper;
+
+    private FileMetaDataMapper generatedMapper;
+
+    private List<FileMetaDataDocument> documents;
+
+    private List<FileMetaDataRow> rows;
+
+    @Setup
+    public void setup() {
+        mapper = new ModelMapper();
+        generatedMapper = new FileMetaDataMapperImpl();
+        documents = new ArrayList<>(entries);
+        rows = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            String objectName = UUID.randomUUID() + ".pdf";
+            documents.add(FileMetaDataDocument.builder()
+                    .id(UUID.randomUUID().toString())
+                    .uploadFileName(objectName)
+                    .originalFileName("report-" + i + ".pdf")
+                    .type("application/pdf")
+                    .size(1024L * i)
+                    .sha256(String.format("%064x", i))
+                    .username("bench@cloudshare.dev")
+                    .isPublic(i % 2 == 0)
+                    .fileLocation(objectName)
+                    .uploadAt(LocalDateTime.now())
+                    .build());
+            FileMetaDataDocument doc = documents.get(i);
+            rows.add(new FileMetaDataRow(doc.getId(), doc.getUploadFileName(), doc.getOriginalFileName(), doc.getType(),
+                    doc.getSize(), doc.getCodec(), doc.getSha256(), doc.getUsername(), doc.getIsPublic(),
+                    doc.getFileLocation(), doc.getThumbnailObject(), doc.getUploadAt()));
+        }
+    }
+
+    @Benchmark
+    public List<FileMetaDataDto> mapAll() {
+        return documents.stream()
+                .map(doc -> mapper.map(doc, FileMetaDataDto.class))
+                .toList();
+    }
+
+    @Benchmark
+    public List<FileMetaDataDto> generatedFromEntity() {
+        return documents.stream()
+                .map(generatedMapper::toDto)
+                .toList();
+    }
+
+    @Benchmark
+    public List<FileMetaDataDto> generatedFromRow() {
+        return rows.stream()
+                .map(generatedMapper::toDto)
+                .toList();
+    }
+}
@@ -0,0 +1,57 @@
+package com.cloud.share.handler;
+
+import com.cloud.share.dto.FileMetaDataDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// builds the response map and writes it the way the message converter would
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GenericResponseBenchmark {
+
+    @Param({"0", "1", "100"})
+    private int files;
+
+    private ObjectMapper objectMapper;
+
+    private Object data;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<FileMetaDataDto> list = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            FileMetaDataDto file = new FileMetaDataDto();
+            file.setId(String.valueOf(i));
+            file.setOriginalFileName("report-" + i + ".pdf");
+            file.setType("application/pdf");
+            file.setSize(1024L * i);
+            file.setIsPublic(false);
+            file.setUploadAt(LocalDateTime.now());
+            list.add(file);
+        }
+        data = list;
+    }
+
+    @Benchmark
+    public byte[] createAndSerialize() throws Exception {
+        GenericResponse response = GenericResponse.builder()
+                .status("success")
+                .message("Files fetched")
+                .data(data)
+                .responseStatus(HttpStatus.OK)
+                .build();
+        return objectMapper.writeValueAsBytes(response.create().getBody());
+    }
+}
@@ -0,0 +1,63 @@
+package com.cloud.share.serviceImpl;
+
+import com.cloud.share.entity.AccountStatus;
+import com.cloud.share.entity.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.concurrent.TimeUnit;
+
+// every authenticated request parses the token once per extract call, validateToken alone parses it twice
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtServiceBenchmark {
+
+    private JwtServiceImpl jwtService;
+
+    private User user;
+
+    private String token;
+
+    private UserDetails userDetails;
+
+    @Setup
+    public void setup() {
+        jwtService = new JwtServiceImpl();
+        user = User.builder()
+                .id(1)
+                .name("Bench")
+                .email("bench@cloudshare.dev")
+                .status(AccountStatus.builder().isActive(true).build())
+                .build();
+        token = jwtService.generateToken(user);
+        userDetails = org.springframework.security.core.userdetails.User.withUsername(user.getEmail())
+                .password("unused")
+                .build();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String extractUsername() {
+        return jwtService.extractUsername(token);
+    }
+
+    @Benchmark
+    public String extractRole() {
+        return jwtService.extractRole(token);
+    }
+
+    // what the JWT filter does per request: extractUsername, then validateToken (two more parses)
+    @Benchmark
+    public Boolean filterPath() {
+        jwtService.extractUsername(token);
+        return jwtService.validateToken(token, userDetails);
+    }
+}
@@ -0,0 +1,23 @@
+package com.cloud.share.serviceImpl;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentSignatureBenchmark {
+
+    private final String data = "order_NhZ3kX8qkLr0Pq|pay_NhZ4AbcDeFgHiJ";
+
+    private final String secret = "razorpay_test_secret_0123456789";
+
+    @Benchmark
+    public String generateHmacSha256Signature() throws Exception {
+        return PaymentService.generateHmacSha256Signature(data, secret);
+    }
+}
@@ -0,0 +1,22 @@
+package com.cloud.share.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommonUtilBenchmark {
+
+    @Param({"java_programing.pdf", "holiday.jpeg", "archive.tar.gz", "README"})
+    private String fileName;
+
+    @Benchmark
+    public String getContentType() {
+        return CommonUtil.getContentType(fileName);
+    }
+}
@@ -1,10 +1,20 @@
 package com.cloud.share.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class MinIOConfig {
 
@@ -17,11 +27,75 @@ public class MinIOConfig {
     @Value("${minio.secret-key}")
     private String secretKey;
 
+    // further endpoints of the same deployment to spread requests over; minio.endpoint still signs
+    // requests and presigned URLs, so it should be the address clients use
+    @Value("${minio.endpoints:}")
+    private List<String> endpoints;
+
+    @Value("${minio.http.max-idle-connections:64}")
+    private int maxIdleConnections;
+
+    @Value("${minio.http.keep-alive:5m}")
+    private Duration keepAlive;
+
+    // async calls (multipart uploads) queue in OkHttp's dispatcher; its default of 5 per host is far too low
+    @Value("${minio.http.max-requests:256}")
+    private int maxRequests;
+
+    @Value("${minio.http.max-requests-per-host:256}")
+    private int maxRequestsPerHost;
+
+    @Value("${minio.http.connect-timeout:10s}")
+    private Duration connectTimeout;
+
+    @Value("${minio.http.read-timeout:5m}")
+    private Duration readTimeout;
+
+    @Value("${minio.http.write-timeout:5m}")
+    private Duration writeTimeout;
+
     @Bean
-    public MinioClient minioClient() {
+    public MinioEndpointBalancer minioEndpointBalancer(MeterRegistry registry) {
+        return new MinioEndpointBalancer(endpoints, registry);
+    }
+
+    // one pool for both clients, so sync and async calls reuse the same keep-alive connections
+    @Bean
+    public OkHttpClient minioHttpClient(MinioEndpointBalancer balancer) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .writeTimeout(writeTimeout)
+                .protocols(List.of(Protocol.HTTP_1_1));  // as MinIO's own default client
+        if (balancer.isActive()) {
+            builder.addInterceptor(balancer);
+        }
+        OkHttpClient client = builder.build();
+        balancer.setProbeClient(client);
+        return client;
+    }
+
+    @Bean
+    public MinioClient minioClient(OkHttpClient minioHttpClient) {
         return MinioClient.builder()
                 .endpoint(endpoint)
                 .credentials(accessKey, secretKey)
+                .httpClient(minioHttpClient)
                 .build();
     }
-}
\ No newline at end of file
+
+    @Bean
+    public MultipartMinioClient multipartMinioClient(OkHttpClient minioHttpClient) {
+        return new MultipartMinioClient(MinioAsyncClient.builder()
+                .endpoint(endpoint)
+                .credentials(accessKey, secretKey)
+                .httpClient(minioHttpClient)
+                .build());
+    }
+}
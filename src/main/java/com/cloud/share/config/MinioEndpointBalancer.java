@@ -0,0 +1,132 @@
+package com.cloud.share.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads MinIO requests round robin over several endpoints of the same deployment (the nodes of a
+ * distributed cluster, or several gateways). Requests are signed for the configured endpoint and only
+ * re-addressed here; the signed Host header is left as it is, so any node accepts them. Endpoints
+ * failing a health probe, or a connection, are skipped until they pass a probe again.
+ */
+@Slf4j
+public class MinioEndpointBalancer implements Interceptor {
+
+    private static final String HEALTH_PATH = "minio/health/live";
+
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(5);
+
+    private final List<Endpoint> endpoints;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private OkHttpClient probeClient;
+
+    private static class Endpoint {
+        final HttpUrl url;
+        volatile boolean healthy = true;
+
+        Endpoint(HttpUrl url) {
+            this.url = url;
+        }
+    }
+
+    public MinioEndpointBalancer(List<String> urls, MeterRegistry registry) {
+        this.endpoints = urls.stream()
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .map(url -> new Endpoint(HttpUrl.get(url)))
+                .toList();
+        for (Endpoint endpoint : endpoints) {
+            Gauge.builder("cloudshare.storage.endpoint.healthy", endpoint, e -> e.healthy ? 1 : 0)
+                    .description("1 while the MinIO endpoint receives requests, 0 while it is skipped")
+                    .tag("endpoint", endpoint.url.host() + ":" + endpoint.url.port())
+                    .register(registry);
+        }
+    }
+
+    // nothing to balance with fewer than two endpoints
+    public boolean isActive() {
+        return endpoints.size() > 1;
+    }
+
+    // the probes use the shared pool, but must not go through this interceptor themselves
+    public void setProbeClient(OkHttpClient client) {
+        OkHttpClient.Builder builder = client.newBuilder();
+        builder.interceptors().remove(this);
+        this.probeClient = builder.callTimeout(PROBE_TIMEOUT).build();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        // request bodies may be one-shot streams, only reads are retried on another endpoint
+        boolean retryable = "GET".equals(request.method()) || "HEAD".equals(request.method());
+        int attempts = retryable ? endpoints.size() : 1;
+
+        IOException failure = null;
+        for (int attempt = 0; attempt < attempts; attempt++) {
+            Endpoint endpoint = pick();
+            HttpUrl url = request.url().newBuilder()
+                    .scheme(endpoint.url.scheme())
+                    .host(endpoint.url.host())
+                    .port(endpoint.url.port())
+                    .build();
+            try {
+                return chain.proceed(request.newBuilder().url(url).build());
+            } catch (IOException e) {
+                // could not talk to it at all, leave it to the next probe to bring it back
+                if (endpoint.healthy) {
+                    endpoint.healthy = false;
+                    log.error("MinioEndpointBalancer :: intercept :: " + endpoint.url + " :: " + e.getMessage());
+                }
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    // next healthy endpoint; when none looks healthy, round robin over all of them rather than failing outright
+    private Endpoint pick() {
+        int start = Math.floorMod(next.getAndIncrement(), endpoints.size());
+        for (int i = 0; i < endpoints.size(); i++) {
+            Endpoint endpoint = endpoints.get((start + i) % endpoints.size());
+            if (endpoint.healthy) {
+                return endpoint;
+            }
+        }
+        return endpoints.get(start);
+    }
+
+    @Scheduled(fixedDelayString = "${minio.health.interval-ms:10000}")
+    public void probe() {
+        if (!isActive() || probeClient == null) {
+            return;
+        }
+        for (Endpoint endpoint : endpoints) {
+            boolean healthy;
+            Request request = new Request.Builder().url(endpoint.url.resolve(HEALTH_PATH)).get().build();
+            try (Response response = probeClient.newCall(request).execute()) {
+                healthy = response.isSuccessful();
+            } catch (IOException e) {
+                healthy = false;
+            }
+            if (healthy != endpoint.healthy) {
+                log.info("MinioEndpointBalancer :: probe :: " + endpoint.url + (healthy ? " is back" : " is down"));
+                endpoint.healthy = healthy;
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.cloud.share.config;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.MinioAsyncClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.messages.ListPartsResult;
+import io.minio.messages.Part;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the S3 multipart primitives that {@link io.minio.MinioClient} keeps protected,
+ * so uploads can be driven part by part instead of through a single putObject call.
+ */
+public class MultipartMinioClient extends MinioAsyncClient {
+
+    public MultipartMinioClient(MinioAsyncClient client) {
+        super(client);
+    }
+
+    public String createMultipartUpload(String bucketName, String objectName, String contentType, Map<String, String> extraHeaders) throws Exception {
+        Multimap<String, String> headers = HashMultimap.create();
+        headers.put("Content-Type", contentType);
+        extraHeaders.forEach(headers::put);
+        return createMultipartUploadAsync(bucketName, null, objectName, headers, HashMultimap.create())
+                .get()
+                .result()
+                .uploadId();
+    }
+
+    public String uploadPart(String bucketName, String objectName, String uploadId, int partNumber, byte[] data, int length) throws Exception {
+        return uploadPartAsync(bucketName, null, objectName, data, length, uploadId, partNumber, HashMultimap.create(), HashMultimap.create())
+                .get()
+                .etag();
+    }
+
+    public String uploadPart(String bucketName, String objectName, String uploadId, int partNumber, InputStream data, long length) throws Exception {
+        return uploadPartAsync(bucketName, null, objectName, data, length, uploadId, partNumber, HashMultimap.create(), HashMultimap.create())
+                .get()
+                .etag();
+    }
+
+    public List<Part> listParts(String bucketName, String objectName, String uploadId) throws Exception {
+        List<Part> parts = new ArrayList<>();
+        Integer marker = null;
+        ListPartsResult result;
+        do {
+            result = listPartsAsync(bucketName, null, objectName, null, marker, uploadId, HashMultimap.create(), HashMultimap.create())
+                    .get()
+                    .result();
+            parts.addAll(result.partList());
+            marker = result.nextPartNumberMarker();
+        } while (result.isTruncated());
+        return parts;
+    }
+
+    public ObjectWriteResponse completeMultipartUpload(String bucketName, String objectName, String uploadId, Part[] parts) throws Exception {
+        return completeMultipartUploadAsync(bucketName, null, objectName, uploadId, parts, HashMultimap.create(), HashMultimap.create())
+                .get();
+    }
+
+    public void abortMultipartUpload(String bucketName, String objectName, String uploadId) throws Exception {
+        abortMultipartUploadAsync(bucketName, null, objectName, uploadId, HashMultimap.create(), HashMultimap.create())
+                .get();
+    }
+}
@@ -1,17 +1,96 @@
 package com.cloud.share.config;
 
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 public class ProjectConfig {
 
+    @Autowired
+    private Environment environment;
+
     @Bean
     public ModelMapper modelMapper() {
         return new ModelMapper();
     }
 
+    // fans multi-file uploads out to MinIO, bounded so one big batch can't flood the storage node
+    @Bean
+    public AsyncTaskExecutor uploadExecutor(@Value("${upload.parallelism:8}") int parallelism) {
+        return boundedExecutor("upload-", parallelism);
+    }
+
+    // fills the local download cache in the background; best effort, extra work is rejected rather than queued forever.
+    // Stays on platform threads in both modes, it never runs on a request's behalf
+    @Bean
+    public ThreadPoolTaskExecutor downloadCacheExecutor(@Value("${download.cache.fill-threads:2}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("cache-fill-");
+        executor.initialize();
+        return executor;
+    }
 
+    // renders thumbnails; CPU bound, so a small platform pool in both modes. The queue is bounded,
+    // the pending work itself waits in the thumbnail_task table
+    @Bean
+    public ThreadPoolTaskExecutor thumbnailExecutor(@Value("${thumbnail.workers:2}") int workers,
+                                                    @Value("${thumbnail.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("thumbnail-");
+        executor.initialize();
+        return executor;
+    }
 
-}
\ No newline at end of file
+    // opens the next MinIO objects of a ZIP download while the current one is being written
+    @Bean
+    public AsyncTaskExecutor archiveExecutor(@Value("${download.archive.threads:16}") int threads) {
+        return boundedExecutor("archive-", threads);
+    }
+
+    // jakarta.mail holds monitors across the whole SMTP exchange, which would pin a virtual thread's carrier;
+    // with virtual threads the send is handed to a small platform pool, otherwise it runs inline as before
+    @Bean
+    public TaskExecutor mailExecutor(@Value("${mail.executor.threads:4}") int threads) {
+        if (!Threading.VIRTUAL.isActive(environment)) {
+            return new SyncTaskExecutor();
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("mail-");
+        executor.initialize();
+        return executor;
+    }
+
+    // spring.threads.virtual.enabled=true (Java 21+): one virtual thread per task, same concurrency cap
+    private AsyncTaskExecutor boundedExecutor(String threadNamePrefix, int threads) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(threads);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,98 @@
+package com.cloud.share.config;
+
+import com.cloud.share.util.MeteredInputStream;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// meters for every call we make to MinIO, tagged by operation so storage latency shows up apart from the DB
+@Component
+public class StorageMetrics {
+
+    private static final String REQUESTS = "cloudshare.storage.requests";
+    private static final String BYTES = "cloudshare.storage.bytes";
+    private static final String ERRORS = "cloudshare.storage.errors";
+
+    private final MeterRegistry registry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    // bytes already pulled from MinIO by downloads that are still streaming
+    private final AtomicLong inFlightBytes = new AtomicLong();
+
+    private final AtomicLong activeDownloads = new AtomicLong();
+
+    public StorageMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("cloudshare.storage.download.in_flight_bytes", inFlightBytes, AtomicLong::get)
+                .description("Bytes streamed so far by downloads that are still open")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("cloudshare.storage.download.active", activeDownloads, AtomicLong::get)
+                .description("Download streams currently open against MinIO")
+                .register(registry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void success(Timer.Sample sample, String operation, long bytes) {
+        sample.stop(timer(operation, "success"));
+        if (bytes > 0) {
+            bytes(operation).increment(bytes);
+        }
+    }
+
+    public void failure(Timer.Sample sample, String operation, Exception e) {
+        sample.stop(timer(operation, "error"));
+        counters.computeIfAbsent(ERRORS + ":" + operation + ":" + e.getClass().getSimpleName(),
+                key -> Counter.builder(ERRORS)
+                        .description("Failed MinIO operations")
+                        .tag("operation", operation)
+                        .tag("exception", e.getClass().getSimpleName())
+                        .register(registry)).increment();
+    }
+
+    // counts bytes as the client reads them and keeps the in-flight gauge up to date until the stream is closed
+    public InputStream track(InputStream inputStream, String operation) {
+        Counter counter = bytes(operation);
+        activeDownloads.incrementAndGet();
+        return new MeteredInputStream(inputStream, n -> {
+            inFlightBytes.addAndGet(n);
+            counter.increment(n);
+        }, total -> {
+            inFlightBytes.addAndGet(-total);
+            activeDownloads.decrementAndGet();
+        });
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return timers.computeIfAbsent(operation + ":" + outcome,
+                key -> Timer.builder(REQUESTS)
+                        .description("Latency of MinIO operations")
+                        .tag("operation", operation)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .publishPercentiles(0.5, 0.95, 0.99)
+                        .register(registry));
+    }
+
+    private Counter bytes(String operation) {
+        return counters.computeIfAbsent(BYTES + ":" + operation,
+                key -> Counter.builder(BYTES)
+                        .description("Bytes moved to or from MinIO")
+                        .baseUnit("bytes")
+                        .tag("operation", operation)
+                        .register(registry));
+    }
+}
@@ -1,30 +1,74 @@
 package com.cloud.share.controller;
 
+import com.cloud.share.dto.FileListQuery;
 import com.cloud.share.dto.FileMetaDataDto;
+import com.cloud.share.dto.FilePageDto;
+import com.cloud.share.dto.PresignedUrlDto;
+import com.cloud.share.dto.UploadPrecheckRequest;
 import com.cloud.share.exception.ResourceNotFoundException;
+import com.cloud.share.serviceImpl.ArchiveService;
+import com.cloud.share.serviceImpl.BandwidthService;
+import com.cloud.share.config.security.CustomUserDetails;
+import com.cloud.share.serviceImpl.DownloadCacheService;
+import com.cloud.share.serviceImpl.DownloadStatsService;
 import com.cloud.share.serviceImpl.FileMetaDataService;
+import com.cloud.share.serviceImpl.FileSearchService;
 import com.cloud.share.serviceImpl.MinIOService;
+import com.cloud.share.serviceImpl.PresignedUrlService;
 import com.cloud.share.serviceImpl.UserCreditsService;
+import com.cloud.share.util.CommonUtil;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.InputStreamResource;
-import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/files")
 public class FileController {
 
+    // request attributes Tomcat's connector reads to hand a file to sendfile after the servlet returns
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final int MAX_BATCH_URLS = 500;
+
     @Autowired
     private FileMetaDataService fileMetaDataService;
 
@@ -34,6 +78,28 @@ public class FileController {
     @Autowired
     private MinIOService minIOService;
 
+    @Autowired
+    private DownloadCacheService downloadCacheService;
+
+    @Autowired
+    private PresignedUrlService presignedUrlService;
+
+    @Autowired
+    private ArchiveService archiveService;
+
+    @Autowired
+    private DownloadStatsService downloadStatsService;
+
+    @Autowired
+    private BandwidthService bandwidthService;
+
+    @Autowired
+    private FileSearchService fileSearchService;
+
+    // proxy: bytes flow through this app; redirect: 302 to a presigned MinIO url, the app only authorizes
+    @Value("${download.mode:proxy}")
+    private String downloadMode;
+
     @PostMapping(value = "/upload", consumes = "multipart/form-data")
     public ResponseEntity<?> uploadFile(@RequestParam("file") MultipartFile[] files) throws IOException {
 
@@ -46,44 +112,343 @@ public class FileController {
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
+    // same response as /upload, but parts are streamed into MinIO instead of buffered by the servlet container
+    @PostMapping(value = "/upload/stream", consumes = "multipart/form-data")
+    public ResponseEntity<?> uploadFileStream(HttpServletRequest request) throws IOException {
+
+        List<FileMetaDataDto> list = fileMetaDataService.uploadFilesStreaming(request);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("files", list);
+        response.put("remainingCredits", userCreditsService.getUserCredit());
+
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    // send the hash first: if you already store that content the file is created and no bytes need to follow
+    @PostMapping("/upload/precheck")
+    public ResponseEntity<?> precheckUpload(@RequestBody UploadPrecheckRequest request) {
+        Optional<FileMetaDataDto> file = fileMetaDataService.uploadByHash(request);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("exists", file.isPresent());
+        file.ifPresent(f -> response.put("file", f));
+        response.put("remainingCredits", userCreditsService.getUserCredit());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    // paged: follow nextCursor until it is null
     @GetMapping("/my")
-    public ResponseEntity<?> getFilesForCurrentUser() {
-        List<FileMetaDataDto> files = fileMetaDataService.getFiles();
+    public ResponseEntity<?> getFilesForCurrentUser(FileListQuery query) {
+        FilePageDto page = fileMetaDataService.getFiles(query);
 
         Map<String, Object> response = new HashMap<>();
-        response.put("files", files);
+        response.put("files", page.getFiles());
+        response.put("nextCursor", page.getNextCursor());
         response.put("remainingCredits", userCreditsService.getUserCredit());
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
+    // your files by name, newest first; mode is token (default), prefix or substring
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam String q,
+                                    @RequestParam(required = false) String mode,
+                                    @RequestParam(required = false) Integer limit) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("files", fileSearchService.search(q, mode, limit));
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
     @GetMapping("/public/{id}")
-    public ResponseEntity<?> getPublicFile(@PathVariable String id) throws ResourceNotFoundException {
+    public ResponseEntity<?> getPublicFile(@PathVariable String id, WebRequest webRequest,
+                                           HttpServletRequest servletRequest) throws ResourceNotFoundException {
         FileMetaDataDto file = fileMetaDataService.getPublicFile(id);
-        return new ResponseEntity<>(file, HttpStatus.OK);
+        // no Last-Modified: the upload time says nothing about a rename, a visibility change or a new thumbnail URL
+        if (webRequest.checkNotModified(metadataEtag(file))) {
+            return null;  // 304 already written
+        }
+        downloadStatsService.recordView(file.getId(), visitor(servletRequest));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePublic())
+                .body(file);
     }
 
     @GetMapping("/download/{id}")
-    public ResponseEntity<Resource> download(@PathVariable String id) throws ResourceNotFoundException {
+    public ResponseEntity<?> download(@PathVariable String id,
+                                      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                      @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+                                      @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+                                      WebRequest webRequest, HttpServletRequest servletRequest) throws ResourceNotFoundException {
         try {
             // This method handles both public files and files owned by current user
             FileMetaDataDto file = fileMetaDataService.getDownloadableFileById(id);
+            boolean encoded = file.getCodec() != null && CommonUtil.acceptsEncoding(acceptEncoding, file.getCodec());
+            // MinIO serves a compressed object as stored, a client that can't decode it is proxied instead
+            if ("redirect".equalsIgnoreCase(downloadMode) && (file.getCodec() == null || encoded)) {
+                downloadStatsService.recordDownload(file.getId(), visitor(servletRequest));
+                return ResponseEntity.status(HttpStatus.FOUND)
+                        .location(URI.create(presignedUrlService.getDownloadUrl(file).getUrl()))
+                        .cacheControl(CacheControl.noStore())
+                        .build();
+            }
+            String disposition = "attachment; filename=\"" + file.getOriginalFileName() + "\"";
 
-            // Get file stream from MinIO
-            InputStream inputStream = minIOService.downloadFile(file.getUploadFileName());
-            InputStreamResource resource = new InputStreamResource(inputStream);
+            // answered from the metadata row alone, MinIO is never touched for a 304
+            String etag = etag(file, encoded ? file.getCodec() : null);
+            if (webRequest.checkNotModified(etag, lastModified(file))) {
+                return null;
+            }
+            // a resumed or seeking client sends many ranged requests, only the one from the start counts
+            if (range == null || range.startsWith("bytes=0-")) {
+                downloadStatsService.recordDownload(file.getId(), visitor(servletRequest));
+            }
+            BandwidthService.Throttle throttle = bandwidthService.forDownload(servletRequest);
 
-            return ResponseEntity.ok()
+            // hot public objects are served from the node's disk copy, a miss queues one up
+            Path cached = null;
+            if (Boolean.TRUE.equals(file.getIsPublic())) {
+                cached = downloadCacheService.get(file.getUploadFileName()).orElse(null);
+                if (cached == null) {
+                    downloadCacheService.fillAsync(file.getUploadFileName(), file.getSize());
+                }
+            }
+
+            // ranges are offsets into the stored object, so only files stored as is can serve them
+            if (file.getCodec() == null && range != null && ifRangeMatches(ifRange, etag, file)) {
+                List<HttpRange> ranges = parseRanges(range);
+                if (!ranges.isEmpty()) {
+                    return partialContent(file, ranges, disposition, cached, throttle, servletRequest);
+                }
+            }
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
                     .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, disposition)
+                    .header(HttpHeaders.ACCEPT_RANGES, file.getCodec() == null ? "bytes" : "none")
+                    .cacheControl(cacheControl(file));
+            if (file.getCodec() != null) {
+                response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            if (encoded) {
+                // send the stored bytes as they are, the client decompresses
+                response.header(HttpHeaders.CONTENT_ENCODING, file.getCodec());
+            }
+
+            if (cached != null && (file.getCodec() == null || encoded)) {
+                return sendFile(response, cached, 0, Files.size(cached), throttle, servletRequest);
+            }
+
+            // Get file stream from MinIO
+            InputStream inputStream = throttle.wrap(cached != null
+                    ? Files.newInputStream(cached)
+                    : minIOService.downloadFile(file.getUploadFileName()));
+
+            if (encoded) {
+                return response.body(new InputStreamResource(inputStream));
+            }
+            if (file.getCodec() != null) {
+                // paced on the stored bytes, decoded ones can be many times more
+                inputStream = minIOService.decode(inputStream, file.getCodec());
+            }
+
+            return response
                     .contentLength(file.getSize())
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + file.getOriginalFileName() + "\"")
-                    .body(resource);
+                    .body(new InputStreamResource(inputStream));
 
         } catch (Exception e) {
             throw new ResourceNotFoundException("Error downloading file: " + e.getMessage());
         }
     }
 
+    // who to count as a unique visitor: the logged in user, otherwise the client address
+    private String visitor(HttpServletRequest servletRequest) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails user) {
+            return "user:" + user.getUser().getEmail();
+        }
+        return "addr:" + servletRequest.getRemoteAddr();
+    }
+
+    // a malformed Range header is ignored and the whole file is sent
+    private List<HttpRange> parseRanges(String range) {
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    // strong ETag: stored objects are never rewritten, so the content hash (or for files uploaded before
+    // hashing, the unique object name) identifies the bytes; the encoded representation gets its own tag
+    private String etag(FileMetaDataDto file, String encoding) {
+        String tag = file.getSha256() != null ? file.getSha256() : file.getUploadFileName();
+        return "\"" + tag + (encoding != null ? "-" + encoding : "") + "\"";
+    }
+
+    // over every field of the body, the presigned thumbnailUrl included: once it is re-signed before expiring,
+    // the tag changes and revalidating clients get the fresh URL instead of a 304 pinning the old one
+    private String metadataEtag(FileMetaDataDto file) {
+        String fields = String.join("|", file.getId(), file.getUploadFileName(), file.getOriginalFileName(),
+                file.getType(), String.valueOf(file.getSize()), file.getCodec(), file.getSha256(), file.getUsername(),
+                String.valueOf(file.getIsPublic()), file.getFileLocation(), file.getThumbnailUrl(),
+                String.valueOf(file.getUploadAt()));
+        return "\"" + DigestUtils.md5DigestAsHex(fields.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    private long lastModified(FileMetaDataDto file) {
+        return file.getUploadAt() == null ? -1 : file.getUploadAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // caches may keep the bytes but have to revalidate, private files stay out of shared caches
+    private CacheControl cacheControl(FileMetaDataDto file) {
+        return Boolean.TRUE.equals(file.getIsPublic())
+                ? CacheControl.noCache().cachePublic()
+                : CacheControl.noCache().cachePrivate();
+    }
+
+    // If-Range: serve the range only if the client's copy is still current, otherwise the full file
+    private boolean ifRangeMatches(String ifRange, String etag, FileMetaDataDto file) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(etag);
+        }
+        if (ifRange.startsWith("W/") || file.getUploadAt() == null) {
+            return false;
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return date.toEpochSecond() == file.getUploadAt().atZone(ZoneId.systemDefault()).toEpochSecond();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    // 206 with one ranged MinIO GET per requested range, 416 if none of them fits the file
+    private ResponseEntity<?> partialContent(FileMetaDataDto file, List<HttpRange> ranges, String disposition,
+                                             Path cached, BandwidthService.Throttle throttle,
+                                             HttpServletRequest servletRequest) throws IOException {
+        long size = file.getSize();
+        List<long[]> satisfiable = new ArrayList<>();
+        for (HttpRange range : ranges) {
+            try {
+                long start = range.getRangeStart(size);
+                long end = range.getRangeEnd(size);
+                if (start <= end) {
+                    satisfiable.add(new long[]{start, end});
+                }
+            } catch (IllegalArgumentException ignored) {
+                // range starts past the end of the file
+            }
+        }
+
+        if (satisfiable.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                    .build();
+        }
+
+        if (satisfiable.size() == 1) {
+            long start = satisfiable.get(0)[0];
+            long end = satisfiable.get(0)[1];
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, disposition)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .cacheControl(cacheControl(file))
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            if (cached != null) {
+                return sendFile(response, cached, start, end - start + 1, throttle, servletRequest);
+            }
+            InputStream inputStream = throttle.wrap(minIOService.downloadFile(file.getUploadFileName(), start, end - start + 1));
+            return response
+                    .contentLength(end - start + 1)
+                    .body(new InputStreamResource(inputStream));
+        }
+
+        // multipart/byteranges, each part fetched from MinIO only when it is written
+        String boundary = UUID.randomUUID().toString();
+        StreamingResponseBody body = responseStream -> {
+            OutputStream outputStream = throttle.wrap(responseStream);
+            for (long[] range : satisfiable) {
+                String partHeader = "\r\n--" + boundary + "\r\n"
+                        + HttpHeaders.CONTENT_TYPE + ": " + MediaType.APPLICATION_OCTET_STREAM_VALUE + "\r\n"
+                        + HttpHeaders.CONTENT_RANGE + ": bytes " + range[0] + "-" + range[1] + "/" + size + "\r\n\r\n";
+                outputStream.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+                try (InputStream inputStream = minIOService.downloadFile(file.getUploadFileName(), range[0], range[1] - range[0] + 1)) {
+                    inputStream.transferTo(outputStream);
+                }
+            }
+            outputStream.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        };
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .contentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary))
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .cacheControl(cacheControl(file))
+                .body(body);
+    }
+
+    // zero copy: with Tomcat's sendfile the kernel moves the bytes from the page cache to the socket,
+    // otherwise FileChannel.transferTo into the response stream; sendfile can't be paced, so a
+    // throttled client always takes the second way
+    private ResponseEntity<?> sendFile(ResponseEntity.BodyBuilder response, Path path, long start, long length,
+                                       BandwidthService.Throttle throttle, HttpServletRequest servletRequest) throws IOException {
+        response.contentLength(length);
+        if (!throttle.isLimited() && Boolean.TRUE.equals(servletRequest.getAttribute(SENDFILE_SUPPORT))) {
+            servletRequest.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            servletRequest.setAttribute(SENDFILE_START, start);
+            servletRequest.setAttribute(SENDFILE_END, start + length);
+            return response.build();
+        }
+
+        // opened now, so an eviction before the body is written can't pull the file away
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        StreamingResponseBody body = outputStream -> {
+            try (channel) {
+                WritableByteChannel target = Channels.newChannel(throttle.wrap(outputStream));
+                long position = start;
+                long end = start + length;
+                while (position < end) {
+                    position += channel.transferTo(position, end - position, target);
+                }
+            }
+        };
+        return response.body(body);
+    }
+
+    // the whole library as one ZIP, streamed while it is built
+    @GetMapping("/archive")
+    public ResponseEntity<?> downloadAll(HttpServletRequest servletRequest) throws ResourceNotFoundException {
+        return zip(fileMetaDataService.getFiles(), servletRequest);
+    }
+
+    // selected files as one ZIP; ids the caller can't download are left out
+    @PostMapping("/archive")
+    public ResponseEntity<?> downloadArchive(@RequestBody List<String> ids,
+                                             HttpServletRequest servletRequest) throws ResourceNotFoundException {
+        return zip(fileMetaDataService.getDownloadableFiles(ids), servletRequest);
+    }
+
+    private ResponseEntity<?> zip(List<FileMetaDataDto> files, HttpServletRequest servletRequest) throws ResourceNotFoundException {
+        if (files.isEmpty()) {
+            throw new ResourceNotFoundException("No files to download");
+        }
+        BandwidthService.Throttle throttle = bandwidthService.forDownload(servletRequest);
+        StreamingResponseBody body = outputStream -> archiveService.writeZip(files, throttle.wrap(outputStream));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"cloudshare-files.zip\"")
+                .body(body);
+    }
+
+    // download numbers of one of your files
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<?> getStats(@PathVariable String id) throws ResourceNotFoundException {
+        return new ResponseEntity<>(downloadStatsService.getStats(id), HttpStatus.OK);
+    }
+
     @DeleteMapping("/delete/{id}")
     public ResponseEntity<?> deleteFile(@PathVariable String id) throws Exception {
         fileMetaDataService.deleteFile(id);
@@ -101,16 +466,31 @@ public class FileController {
     public ResponseEntity<?> getFileUrl(@PathVariable String id) throws ResourceNotFoundException {
         try {
             FileMetaDataDto file = fileMetaDataService.getPublicFile(id);
-            String downloadUrl = minIOService.getFileUrl(file.getUploadFileName());
+            PresignedUrlDto presigned = presignedUrlService.getDownloadUrl(file);
 
             Map<String, Object> response = new HashMap<>();
-            response.put("downloadUrl", downloadUrl);
+            response.put("downloadUrl", presigned.getUrl());
             response.put("fileName", file.getOriginalFileName());
-            response.put("expiresIn", "24 hours");
+            response.put("expiresAt", presigned.getExpiresAt());
 
             return new ResponseEntity<>(response, HttpStatus.OK);
         } catch (Exception e) {
             throw new ResourceNotFoundException("Error generating file URL: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // presigns a whole listing page in one call; ids the caller can't download are left out
+    @PostMapping("/urls")
+    public ResponseEntity<?> getFileUrls(@RequestBody List<String> ids) {
+        if (ids.size() > MAX_BATCH_URLS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_URLS + " ids per request");
+        }
+        List<PresignedUrlDto> urls = fileMetaDataService.getDownloadableFiles(ids).stream()
+                .map(presignedUrlService::getDownloadUrl)
+                .toList();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("urls", urls);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
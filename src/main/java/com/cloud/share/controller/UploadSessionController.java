@@ -0,0 +1,88 @@
+package com.cloud.share.controller;
+
+import com.cloud.share.dto.FileMetaDataDto;
+import com.cloud.share.dto.PresignedUploadDto;
+import com.cloud.share.dto.UploadSessionDto;
+import com.cloud.share.dto.UploadSessionRequest;
+import com.cloud.share.exception.ResourceNotFoundException;
+import com.cloud.share.serviceImpl.BandwidthService;
+import com.cloud.share.serviceImpl.UploadSessionService;
+import com.cloud.share.serviceImpl.UserCreditsService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+// resumable uploads: init -> PUT numbered chunks -> complete (or abort)
+// direct uploads:    presigned -> client PUTs to MinIO -> finalize (or abort)
+@RestController
+@RequestMapping("/files/upload-sessions")
+public class UploadSessionController {
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    @Autowired
+    private UserCreditsService userCreditsService;
+
+    @Autowired
+    private BandwidthService bandwidthService;
+
+    @PostMapping
+    public ResponseEntity<?> initSession(@RequestBody UploadSessionRequest request) {
+        UploadSessionDto session = uploadSessionService.initSession(request);
+        return new ResponseEntity<>(session, HttpStatus.CREATED);
+    }
+
+    // lists the chunks MinIO already has, a client resumes by sending only the missing ones
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getSession(@PathVariable String id) throws ResourceNotFoundException {
+        UploadSessionDto session = uploadSessionService.getSession(id);
+        return new ResponseEntity<>(session, HttpStatus.OK);
+    }
+
+    @PutMapping(value = "/{id}/chunks/{partNumber}", consumes = "application/octet-stream")
+    public ResponseEntity<?> uploadChunk(@PathVariable String id, @PathVariable Integer partNumber,
+                                         HttpServletRequest request) throws ResourceNotFoundException, IOException {
+        UploadSessionDto.PartDto part = uploadSessionService.uploadChunk(id, partNumber,
+                bandwidthService.forUpload().wrap(request.getInputStream()), request.getContentLengthLong());
+        return new ResponseEntity<>(part, HttpStatus.OK);
+    }
+
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<?> completeSession(@PathVariable String id) throws ResourceNotFoundException {
+        FileMetaDataDto file = uploadSessionService.completeSession(id);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("file", file);
+        response.put("remainingCredits", userCreditsService.getUserCredit());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @PostMapping("/presigned")
+    public ResponseEntity<?> presignUpload(@RequestBody UploadSessionRequest request) {
+        PresignedUploadDto upload = uploadSessionService.presignUpload(request);
+        return new ResponseEntity<>(upload, HttpStatus.CREATED);
+    }
+
+    @PostMapping("/{id}/finalize")
+    public ResponseEntity<?> finalizeDirectUpload(@PathVariable String id) throws ResourceNotFoundException {
+        FileMetaDataDto file = uploadSessionService.finalizeDirectUpload(id);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("file", file);
+        response.put("remainingCredits", userCreditsService.getUserCredit());
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> abortSession(@PathVariable String id) throws ResourceNotFoundException {
+        uploadSessionService.abortSession(id);
+        return new ResponseEntity<>("Upload aborted", HttpStatus.OK);
+    }
+}
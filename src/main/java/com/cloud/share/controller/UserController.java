@@ -5,6 +5,7 @@ import com.cloud.share.dto.PasswordChangeRequest;
 import com.cloud.share.dto.UserResponse;
 import com.cloud.share.entity.User;
 import com.cloud.share.service.UserService;
+import com.cloud.share.serviceImpl.StorageUsageService;
 import com.cloud.share.util.CommonUtil;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.modelmapper.ModelMapper;
@@ -25,10 +26,14 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private StorageUsageService storageUsageService;
+
     @GetMapping("/profile")
     public ResponseEntity<?> getProfile() {
         User user = CommonUtil.getLoggedInUser();
         UserResponse userResponse = mapper.map(user, UserResponse.class);
+        userResponse.setUsage(storageUsageService.getUsage(user.getEmail()));
         return CommonUtil.createBuildResponse(userResponse, HttpStatus.OK);
     }
 
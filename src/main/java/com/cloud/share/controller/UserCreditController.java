@@ -2,7 +2,9 @@ package com.cloud.share.controller;
 
 import com.cloud.share.dto.UserCreditsDto;
 import com.cloud.share.entity.UserCredit;
+import com.cloud.share.serviceImpl.StorageUsageService;
 import com.cloud.share.serviceImpl.UserCreditsService;
+import com.cloud.share.util.CommonUtil;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.endpoint.web.AdditionalPathsMapper;
@@ -24,10 +26,14 @@ public class UserCreditController {
     @Autowired
     private ModelMapper mapper;
 
+    @Autowired
+    private StorageUsageService storageUsageService;
+
 
     @GetMapping("/credits")
     public ResponseEntity<?> getUserCredits(){
         UserCreditsDto userCredit=mapper.map(userCreditsService.getUserCredit(),UserCreditsDto.class);
+        userCredit.setUsage(storageUsageService.getUsage(CommonUtil.getLoggedInUser().getEmail()));
         return ResponseEntity.ok(userCredit);
     }
 
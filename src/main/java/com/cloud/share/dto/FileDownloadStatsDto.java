@@ -0,0 +1,25 @@
+package com.cloud.share.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FileDownloadStatsDto {
+
+    private String fileId;
+
+    private long downloads;
+
+    private long views;
+
+    private long uniqueVisitors;  // estimate, within a few percent
+
+    private LocalDateTime lastDownloadAt;
+}
@@ -0,0 +1,38 @@
+package com.cloud.share.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+// query parameters of GET /files/my, every filter is optional
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FileListQuery {
+
+    private String cursor;  // nextCursor of the previous page, absent for the first one
+
+    private Integer limit;
+
+    private String type;  // exact content type, or a prefix ending in "/" such as image/
+
+    private Long minSize;
+
+    private Long maxSize;
+
+    // upload time range, from inclusive, to exclusive
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+
+    private String visibility;  // public or private
+
+    private String sort;  // uploadAt (default) or size
+
+    private String direction;  // desc (default) or asc
+}
@@ -21,12 +21,18 @@ public class FileMetaDataDto {
 
     private Long size;
 
+    private String codec;  // gzip when the stored object is compressed, null otherwise
+
+    private String sha256;  // content hash, shared with every other file holding the same bytes
+
     private String username;
 
     private Boolean isPublic;
 
     private String fileLocation;  // MinIO object key
 
+    private String thumbnailUrl;  // presigned thumbnail for images, null until it is generated
+
     private LocalDateTime uploadAt;
 
     // Helper method to get display name (using originalFileName)
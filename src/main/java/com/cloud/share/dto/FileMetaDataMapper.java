@@ -0,0 +1,17 @@
+package com.cloud.share.dto;
+
+import com.cloud.share.entity.FileMetaDataDocument;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+// generated at compile time: plain getter/setter calls, no reflection per row like ModelMapper
+@Mapper(componentModel = "spring")
+public interface FileMetaDataMapper {
+
+    // the thumbnail url is presigned by the service, not copied
+    @Mapping(target = "thumbnailUrl", ignore = true)
+    FileMetaDataDto toDto(FileMetaDataDocument file);
+
+    @Mapping(target = "thumbnailUrl", ignore = true)
+    FileMetaDataDto toDto(FileMetaDataRow row);
+}
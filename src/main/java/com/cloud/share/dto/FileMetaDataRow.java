@@ -0,0 +1,19 @@
+package com.cloud.share.dto;
+
+import java.time.LocalDateTime;
+
+// the columns a file listing needs, selected straight into this record instead of loading managed entities
+public record FileMetaDataRow(
+        String id,
+        String uploadFileName,
+        String originalFileName,
+        String type,
+        Long size,
+        String codec,
+        String sha256,
+        String username,
+        Boolean isPublic,
+        String fileLocation,
+        String thumbnailObject,
+        LocalDateTime uploadAt) {
+}
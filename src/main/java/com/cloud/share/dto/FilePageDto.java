@@ -0,0 +1,19 @@
+package com.cloud.share.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FilePageDto {
+
+    private List<FileMetaDataDto> files;
+
+    private String nextCursor;  // pass back as cursor for the next page, null on the last one
+}
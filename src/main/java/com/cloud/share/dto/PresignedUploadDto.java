@@ -0,0 +1,37 @@
+package com.cloud.share.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PresignedUploadDto {
+
+    private String sessionId;  // pass to /finalize once the bytes are in MinIO
+
+    private String url;  // single PUT of the whole file, null for multipart
+
+    private Long partSize;  // every part but the last must be exactly this big
+
+    private List<PartUrlDto> parts;  // one PUT per part, null for single uploads
+
+    private LocalDateTime expiresAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class PartUrlDto {
+
+        private Integer partNumber;
+
+        private String url;
+    }
+}
@@ -0,0 +1,23 @@
+package com.cloud.share.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PresignedUrlDto {
+
+    private String id;  // file id
+
+    private String fileName;
+
+    private String url;  // presigned MinIO GET, downloads under fileName
+
+    private LocalDateTime expiresAt;
+}
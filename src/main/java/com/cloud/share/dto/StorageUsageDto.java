@@ -0,0 +1,34 @@
+package com.cloud.share.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StorageUsageDto {
+
+    private long totalBytes;
+
+    private long fileCount;
+
+    private Long quotaBytes;  // null when the plan has no byte limit
+
+    private Map<String, CategoryDto> byType;  // image, video, audio, document, archive, other
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class CategoryDto {
+
+        private long totalBytes;
+
+        private long fileCount;
+    }
+}
@@ -0,0 +1,21 @@
+package com.cloud.share.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StoredObjectDto {
+
+    private String objectName;  // MinIO object key
+
+    private Long size;  // bytes actually written, counted while streaming
+
+    private String sha256;  // hex digest computed while streaming, null when the bytes never passed through us
+
+    private String codec;  // storage encoding of the object (gzip), null when stored as is
+}
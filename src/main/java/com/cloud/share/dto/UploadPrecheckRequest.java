@@ -0,0 +1,19 @@
+package com.cloud.share.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadPrecheckRequest {
+
+    private String sha256;  // hex SHA-256 of the file the client is about to upload
+
+    private Long size;
+
+    private String fileName;
+
+    private String contentType;
+}
@@ -0,0 +1,45 @@
+package com.cloud.share.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UploadSessionDto {
+
+    private String id;
+
+    private String originalFileName;
+
+    private String type;
+
+    private Long size;
+
+    private String status;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime expiresAt;
+
+    private List<PartDto> uploadedParts;  // what MinIO already has, so the client can resume
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class PartDto {
+
+        private Integer partNumber;
+
+        private Long size;
+
+        private String etag;
+    }
+}
@@ -0,0 +1,17 @@
+package com.cloud.share.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadSessionRequest {
+
+    private String fileName;
+
+    private String contentType;
+
+    private Long size;  // optional, only echoed back for the client's progress bar
+}
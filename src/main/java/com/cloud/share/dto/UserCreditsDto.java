@@ -16,4 +16,6 @@ public class UserCreditsDto {
 
     private String plan;
 
+    private StorageUsageDto usage;
+
 }
@@ -19,6 +19,8 @@ public class UserResponse {
 
     private StatusDto status;
 
+    private StorageUsageDto usage;
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -0,0 +1,38 @@
+package com.cloud.share.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// append-only history of every credit movement, UserCredit.credits is the running balance
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Builder
+@Table(indexes = @Index(name = "idx_credit_ledger_username", columnList = "username"))
+public class CreditLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String username;
+
+    private Integer delta;  // negative for reservations, positive for refunds and purchases
+
+    private String reason;  // SIGNUP, UPLOAD, UPLOAD_REFUND, PURCHASE
+
+    private String reference;  // session id, order id, ... whatever explains the movement
+
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,37 @@
+package com.cloud.share.entity;
+
+import com.cloud.share.util.HyperLogLog;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Version;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// download analytics of one file, written in batches by DownloadStatsService rather than per request
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class FileDownloadStats {
+
+    @Id
+    private String fileId;
+
+    private Long downloads;  // /files/download requests
+
+    private Long views;  // /files/public lookups
+
+    @Column(length = HyperLogLog.REGISTERS)
+    private byte[] visitors;  // HyperLogLog registers over users and client addresses of both paths
+
+    private LocalDateTime lastDownloadAt;
+
+    @Version
+    private Long version;  // nodes flush concurrently, a conflicting batch is retried file by file
+}
@@ -10,6 +10,12 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
+// listing pages walk these in order, one per sort of GET /files/my
+@Table(indexes = {
+        @Index(name = "idx_file_owner_upload", columnList = "username, uploadAt, id"),
+        @Index(name = "idx_file_owner_size", columnList = "username, size, id"),
+        @Index(name = "idx_file_owner_sha", columnList = "username, sha256")  // upload precheck
+})
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
@@ -27,12 +33,18 @@ public class FileMetaDataDocument {
 
     private Long size;
 
+    private String codec;  // gzip when the stored object is compressed, null otherwise
+
+    private String sha256;  // content hash, shared with every other file holding the same bytes
+
     private String username;
 
     private Boolean isPublic;
 
     private String fileLocation;  // This will now store the MinIO object key/path
 
+    private String thumbnailObject;  // MinIO key of the generated thumbnail, null until it exists
+
     private LocalDateTime uploadAt;
 
     @PrePersist
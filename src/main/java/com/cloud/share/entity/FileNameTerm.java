@@ -0,0 +1,59 @@
+package com.cloud.share.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+
+// search index over file names: the words of a name ("w:" + word) and its trigrams ("g:" + three chars),
+// looked up per owner through (username, term)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Builder
+@IdClass(FileNameTerm.Key.class)
+@Table(indexes = @Index(name = "idx_file_name_term_owner", columnList = "username, term, fileId"))
+public class FileNameTerm implements Persistable<FileNameTerm.Key> {
+
+    // every indexed file has this term, even one whose name yields no words or grams. Bumped whenever the
+    // terms of a name change, so the backfill indexes older files again
+    public static final String INDEXED = "f:3";
+
+    @Id
+    private String fileId;
+
+    @Id
+    @Column(length = 40)
+    private String term;
+
+    private String username;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String fileId;
+        private String term;
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(fileId, term);
+    }
+
+    // terms are only ever inserted and deleted, never updated, so save() can skip the select of a merge
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -0,0 +1,38 @@
+package com.cloud.share.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+// which node runs a cluster wide scheduled job, and until when; taken over by conditional UPDATEs
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Builder
+public class JobLease implements Persistable<String> {
+
+    @Id
+    private String job;
+
+    private String owner;
+
+    private LocalDateTime lockedUntil;
+
+    @Override
+    public String getId() {
+        return job;
+    }
+
+    // created once per job and must fail on a duplicate instead of merging over another node's lease
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
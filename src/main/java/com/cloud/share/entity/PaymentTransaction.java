@@ -3,7 +3,9 @@ package com.cloud.share.entity;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,6 +19,8 @@ import java.util.UUID;
 @NoArgsConstructor
 @Builder
 @Entity
+// one row per Razorpay order, verification looks it up by order id
+@Table(indexes = @Index(name = "uk_payment_order_id", columnList = "orderId", unique = true))
 public class PaymentTransaction {
 
     @Id
@@ -0,0 +1,37 @@
+package com.cloud.share.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+// running totals of what a user stores, moved by conditional UPDATEs on every upload and delete
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Builder
+public class StorageUsage implements Persistable<String> {
+
+    @Id
+    private String username;
+
+    private Long totalBytes;  // original sizes, a deduplicated file still counts for each owner
+
+    private Long fileCount;
+
+    @Override
+    public String getId() {
+        return username;
+    }
+
+    // only the seed saves this row, and it must fail on a duplicate rather than merge over a concurrent seed;
+    // every later change is a conditional UPDATE
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
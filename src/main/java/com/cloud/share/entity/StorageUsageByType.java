@@ -0,0 +1,51 @@
+package com.cloud.share.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+
+// the same totals split by broad file category (image, video, audio, document, archive, other)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Builder
+@IdClass(StorageUsageByType.Key.class)
+public class StorageUsageByType implements Persistable<StorageUsageByType.Key> {
+
+    @Id
+    private String username;
+
+    @Id
+    private String category;
+
+    private Long totalBytes;
+
+    private Long fileCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String username;
+        private String category;
+    }
+
+    @Override
+    public Key getId() {
+        return new Key(username, category);
+    }
+
+    // inserted once by the seed, like StorageUsage
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
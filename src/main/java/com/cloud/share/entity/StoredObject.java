@@ -0,0 +1,36 @@
+package com.cloud.share.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Version;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// one row per distinct content in MinIO, shared by every FileMetaDataDocument with the same hash
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class StoredObject {
+
+    @Id
+    private String sha256;  // hex SHA-256 of the content, the object's identity
+
+    private String objectName;  // MinIO key of the first upload of this content
+
+    private Long size;  // original, uncompressed size
+
+    private String codec;  // gzip when the stored object is compressed, null otherwise
+
+    private Long refCount;  // number of FileMetaDataDocument rows pointing here
+
+    private LocalDateTime createdAt;
+
+    @Version
+    private Long version;  // null until persisted, so save() inserts instead of merging over a concurrent row
+}
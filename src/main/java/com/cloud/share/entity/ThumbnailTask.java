@@ -0,0 +1,33 @@
+package com.cloud.share.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// persistent queue of thumbnails still to render, a row lives until its thumbnail exists or it gave up
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Builder
+@Table(indexes = @Index(name = "idx_thumbnail_task_status", columnList = "status, createdAt"))
+public class ThumbnailTask {
+
+    @Id
+    private String fileId;
+
+    private String status;  // PENDING, PROCESSING, FAILED
+
+    private Integer attempts;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;  // when it was last claimed, a stale PROCESSING row is handed out again
+}
@@ -0,0 +1,50 @@
+package com.cloud.share.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class UploadSession {
+
+    @Id
+    private String id;
+
+    private String username;
+
+    private String mode;  // CHUNKED (bytes through us) or DIRECT (presigned URLs straight to MinIO)
+
+    private String uploadId;  // MinIO multipart upload id, null for a single presigned PUT
+
+    private String objectName;  // MinIO object key the parts are assembled into
+
+    private String originalFileName;
+
+    private String type;
+
+    private Long size;  // size announced by the client, may be null
+
+    private String status;  // ACTIVE, COMPLETING, COMPLETED, ABORTED, EXPIRED
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;  // last chunk received, drives expiry
+
+    @PrePersist
+    public void generateId() {
+        if (this.id == null) {
+            this.id = UUID.randomUUID().toString();
+        }
+    }
+}
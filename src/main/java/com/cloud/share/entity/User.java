@@ -23,8 +23,6 @@ public class User {
 
     private String password;
 
-    private Integer credits;
-
     @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER)  //sath mai save ho jaye
     @JoinColumn(name = "status_id")
     private AccountStatus status;
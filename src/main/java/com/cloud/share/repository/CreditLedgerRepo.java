@@ -0,0 +1,7 @@
+package com.cloud.share.repository;
+
+import com.cloud.share.entity.CreditLedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CreditLedgerRepo extends JpaRepository<CreditLedgerEntry, Long> {
+}
@@ -0,0 +1,7 @@
+package com.cloud.share.repository;
+
+import com.cloud.share.entity.FileDownloadStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface FileDownloadStatsRepo extends JpaRepository<FileDownloadStats, String> {
+}
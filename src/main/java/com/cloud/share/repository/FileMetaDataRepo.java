@@ -1,13 +1,52 @@
 package com.cloud.share.repository;
 
+import com.cloud.share.dto.FileMetaDataRow;
 import com.cloud.share.entity.FileMetaDataDocument;
+import com.cloud.share.entity.FileNameTerm;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
-public interface FileMetaDataRepo  extends JpaRepository<FileMetaDataDocument,String> {
+public interface FileMetaDataRepo  extends JpaRepository<FileMetaDataDocument,String>, FileMetaDataRepoCustom {
 
-    List<FileMetaDataDocument> findByUsername(String email);
+    // projected into the record, selects only its columns
+    List<FileMetaDataRow> findRowsByUsername(String email);
 
      Long countByUsername(String email);
+
+    // the upload precheck only reuses content the caller already owns
+    boolean existsByUsernameAndSha256(String username, String sha256);
+
+    // upload sessions write their own object, so this tells whether a stuck session's file was recorded
+    boolean existsByUploadFileName(String uploadFileName);
+
+    // content type, file count and bytes; only read once per user, to seed StorageUsage
+    @Query("select f.type, count(f), coalesce(sum(f.size), 0) from FileMetaDataDocument f "
+            + "where f.username = :username group by f.type")
+    List<Object[]> summarizeByType(@Param("username") String username);
+
+    // files without the search index's current marker term, by id from a cursor, so a file that can't be
+    // indexed is passed over instead of being selected again
+    @Query("select f from FileMetaDataDocument f where f.id > :after and not exists "
+            + "(select 1 from FileNameTerm t where t.fileId = f.id and t.term = '" + FileNameTerm.INDEXED + "') "
+            + "order by f.id")
+    List<FileMetaDataDocument> findUnindexed(@Param("after") String after, Pageable pageable);
+
+    // 0 when a concurrent delete of the same file got there first; only the request that got 1 may release
+    // what the file referenced, otherwise shared content would lose two references for one file
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("delete from FileMetaDataDocument f where f.id = :id and f.username = :username")
+    int deleteOwned(@Param("id") String id, @Param("username") String username);
+
+    // single column update, so it can't overwrite a concurrent togglePublic; 0 if the file is gone
+    @Modifying
+    @Transactional
+    @Query("update FileMetaDataDocument f set f.thumbnailObject = :thumbnail where f.id = :id")
+    int setThumbnail(@Param("id") String id, @Param("thumbnail") String thumbnail);
 }
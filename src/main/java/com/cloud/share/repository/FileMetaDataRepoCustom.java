@@ -0,0 +1,19 @@
+package com.cloud.share.repository;
+
+import com.cloud.share.dto.FileMetaDataRow;
+import com.cloud.share.entity.FileMetaDataDocument;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface FileMetaDataRepoCustom {
+
+    // at most limit rows matching the specification, as projections rather than entities
+    List<FileMetaDataRow> findRows(Specification<FileMetaDataDocument> spec, Sort sort, int limit);
+
+    // the owner's files having every exact term and, for each prefix, a term starting with it; namePattern
+    // (a LIKE pattern on the lower cased name) then weeds out trigram false positives. Newest first.
+    List<FileMetaDataRow> findRowsByTerms(String username, List<String> terms, List<String> termPrefixes,
+                                          String namePattern, int limit);
+}
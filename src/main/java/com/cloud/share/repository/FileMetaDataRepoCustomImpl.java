@@ -0,0 +1,98 @@
+package com.cloud.share.repository;
+
+import com.cloud.share.dto.FileMetaDataRow;
+import com.cloud.share.entity.FileMetaDataDocument;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// a constructor expression: Hibernate builds the records from the result set, nothing enters the
+// persistence context and no dirty-checking snapshot is kept per row
+public class FileMetaDataRepoCustomImpl implements FileMetaDataRepoCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<FileMetaDataRow> findRows(Specification<FileMetaDataDocument> spec, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<FileMetaDataRow> query = cb.createQuery(FileMetaDataRow.class);
+        Root<FileMetaDataDocument> root = query.from(FileMetaDataDocument.class);
+
+        query.select(cb.construct(FileMetaDataRow.class,
+                root.get("id"),
+                root.get("uploadFileName"),
+                root.get("originalFileName"),
+                root.get("type"),
+                root.get("size"),
+                root.get("codec"),
+                root.get("sha256"),
+                root.get("username"),
+                root.get("isPublic"),
+                root.get("fileLocation"),
+                root.get("thumbnailObject"),
+                root.get("uploadAt")));
+        query.where(spec.toPredicate(root, query, cb));
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    // the first term is found through the (username, term) index, every further one is a primary key
+    // probe on (fileId, term) for each candidate, so the cost follows the rarest match, not the file count
+    @Override
+    public List<FileMetaDataRow> findRowsByTerms(String username, List<String> terms, List<String> termPrefixes,
+                                                 String namePattern, int limit) {
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> parameters = new HashMap<>();
+        for (int i = 0; i < terms.size(); i++) {
+            conditions.add("t.term = :term" + i);
+            parameters.put("term" + i, terms.get(i));
+        }
+        for (int i = 0; i < termPrefixes.size(); i++) {
+            conditions.add("t.term like :prefix" + i + " escape '!'");
+            parameters.put("prefix" + i, termPrefixes.get(i));
+        }
+        if (conditions.isEmpty()) {
+            return List.of();
+        }
+
+        StringBuilder jpql = new StringBuilder("select new com.cloud.share.dto.FileMetaDataRow(")
+                .append("f.id, f.uploadFileName, f.originalFileName, f.type, f.size, f.codec, f.sha256, ")
+                .append("f.username, f.isPublic, f.fileLocation, f.thumbnailObject, f.uploadAt) ")
+                .append("from FileMetaDataDocument f where f.username = :username and f.id in (")
+                .append("select t.fileId from FileNameTerm t where t.username = :username and ")
+                .append(conditions.get(0));
+        for (int i = 1; i < conditions.size(); i++) {
+            jpql.append(" and exists (select 1 from FileNameTerm t").append(i)
+                    .append(" where t").append(i).append(".fileId = t.fileId and ")
+                    .append(conditions.get(i).replace("t.term", "t" + i + ".term"))
+                    .append(")");
+        }
+        jpql.append(")");
+        if (namePattern != null) {
+            jpql.append(" and lower(f.originalFileName) like :namePattern escape '!'");
+            parameters.put("namePattern", namePattern);
+        }
+        jpql.append(" order by f.uploadAt desc, f.id desc");
+
+        TypedQuery<FileMetaDataRow> query = entityManager.createQuery(jpql.toString(), FileMetaDataRow.class)
+                .setParameter("username", username)
+                .setMaxResults(limit);
+        parameters.forEach(query::setParameter);
+        return query.getResultList();
+    }
+}
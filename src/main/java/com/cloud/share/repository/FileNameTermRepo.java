@@ -0,0 +1,23 @@
+package com.cloud.share.repository;
+
+import com.cloud.share.entity.FileNameTerm;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+public interface FileNameTermRepo extends JpaRepository<FileNameTerm, FileNameTerm.Key> {
+
+    @Modifying
+    @Transactional
+    @Query("delete from FileNameTerm t where t.fileId = :fileId")
+    int deleteByFileId(@Param("fileId") String fileId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from FileNameTerm t where t.fileId in :fileIds")
+    int deleteByFileIdIn(@Param("fileIds") Collection<String> fileIds);
+}
@@ -0,0 +1,21 @@
+package com.cloud.share.repository;
+
+import com.cloud.share.entity.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface JobLeaseRepo extends JpaRepository<JobLease, String> {
+
+    // renews our own lease or takes over an expired one, 0 while another node holds it
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update JobLease l set l.owner = :owner, l.lockedUntil = :until "
+            + "where l.job = :job and (l.owner = :owner or l.lockedUntil < :now)")
+    int acquire(@Param("job") String job, @Param("owner") String owner, @Param("now") LocalDateTime now,
+                @Param("until") LocalDateTime until);
+}
@@ -2,8 +2,13 @@ package com.cloud.share.repository;
 
 import com.cloud.share.entity.PaymentTransaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface PaymentTransactionRepo extends JpaRepository<PaymentTransaction,String> {
 
@@ -11,4 +16,15 @@ public interface PaymentTransactionRepo extends JpaRepository<PaymentTransaction
     List<PaymentTransaction> findByUsernameOrderByTransactionDateDesc(String email);
     List<PaymentTransaction> findByUsernameAndStatusOrderByTransactionDateDesc(String email,String status);
 
+    Optional<PaymentTransaction> findByOrderId(String orderId);
+
+    // SUCCESS is the only final status: FAILED and ERROR just record the last attempt and a later valid
+    // verification still goes through, while of two concurrent successes exactly one gets 1 back
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update PaymentTransaction t set t.status = :status, t.paymentId = :paymentId, t.creditAdded = :creditAdded "
+            + "where t.orderId = :orderId and t.status <> 'SUCCESS'")
+    int updateUnlessSucceeded(@Param("orderId") String orderId, @Param("status") String status,
+                        @Param("paymentId") String paymentId, @Param("creditAdded") int creditAdded);
+
 }
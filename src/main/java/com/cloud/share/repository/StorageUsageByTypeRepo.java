@@ -0,0 +1,23 @@
+package com.cloud.share.repository;
+
+import com.cloud.share.entity.StorageUsageByType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface StorageUsageByTypeRepo extends JpaRepository<StorageUsageByType, StorageUsageByType.Key> {
+
+    List<StorageUsageByType> findByUsername(String username);
+
+    // negative deltas on delete; every category row is created when the user is seeded
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update StorageUsageByType u set u.totalBytes = u.totalBytes + :bytes, u.fileCount = u.fileCount + :files "
+            + "where u.username = :username and u.category = :category")
+    int add(@Param("username") String username, @Param("category") String category,
+            @Param("bytes") long bytes, @Param("files") long files);
+}
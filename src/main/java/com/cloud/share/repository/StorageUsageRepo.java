@@ -0,0 +1,25 @@
+package com.cloud.share.repository;
+
+import com.cloud.share.entity.StorageUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface StorageUsageRepo extends JpaRepository<StorageUsage, String> {
+
+    // check and add in one statement, so concurrent uploads can never overrun the quota
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update StorageUsage u set u.totalBytes = u.totalBytes + :bytes, u.fileCount = u.fileCount + :files "
+            + "where u.username = :username and u.totalBytes + :bytes <= :quota")
+    int reserve(@Param("username") String username, @Param("bytes") long bytes, @Param("files") long files,
+                @Param("quota") long quota);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update StorageUsage u set u.totalBytes = u.totalBytes - :bytes, u.fileCount = u.fileCount - :files "
+            + "where u.username = :username")
+    int release(@Param("username") String username, @Param("bytes") long bytes, @Param("files") long files);
+}
@@ -0,0 +1,27 @@
+package com.cloud.share.repository;
+
+import com.cloud.share.entity.StoredObject;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface StoredObjectRepo extends JpaRepository<StoredObject, String> {
+
+    @Modifying
+    @Transactional
+    @Query("update StoredObject s set s.refCount = s.refCount + 1 where s.sha256 = :sha256")
+    int incrementRefCount(@Param("sha256") String sha256);
+
+    @Modifying
+    @Transactional
+    @Query("update StoredObject s set s.refCount = s.refCount - 1 where s.sha256 = :sha256 and s.refCount > 0")
+    int decrementRefCount(@Param("sha256") String sha256);
+
+    // only matches while nobody re-referenced the content in between
+    @Modifying
+    @Transactional
+    @Query("delete from StoredObject s where s.sha256 = :sha256 and s.refCount = 0")
+    int deleteIfUnreferenced(@Param("sha256") String sha256);
+}
@@ -0,0 +1,28 @@
+package com.cloud.share.repository;
+
+import com.cloud.share.entity.ThumbnailTask;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ThumbnailTaskRepo extends JpaRepository<ThumbnailTask, String> {
+
+    List<ThumbnailTask> findByStatusOrderByCreatedAtAsc(String status, Pageable pageable);
+
+    // compare-and-set on status, so a task is claimed by one node only
+    @Modifying
+    @Transactional
+    @Query("update ThumbnailTask t set t.status = :to, t.updatedAt = :now where t.fileId = :id and t.status = :from")
+    int transitionStatus(@Param("id") String id, @Param("from") String from, @Param("to") String to, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("update ThumbnailTask t set t.status = 'PENDING', t.updatedAt = :now where t.status = 'PROCESSING' and t.updatedAt < :cutoff")
+    int requeueStale(@Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+}
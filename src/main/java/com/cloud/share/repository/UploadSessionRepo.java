@@ -0,0 +1,30 @@
+package com.cloud.share.repository;
+
+import com.cloud.share.entity.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface UploadSessionRepo extends JpaRepository<UploadSession, String> {
+
+    Optional<UploadSession> findByIdAndUsername(String id, String username);
+
+    List<UploadSession> findByStatusAndUpdatedAtBefore(String status, LocalDateTime cutoff);
+
+    // compare-and-set on status, so only one node wins a complete/abort/expire race
+    @Modifying
+    @Transactional
+    @Query("update UploadSession s set s.status = :to, s.updatedAt = :now where s.id = :id and s.status = :from")
+    int transitionStatus(@Param("id") String id, @Param("from") String from, @Param("to") String to, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("update UploadSession s set s.updatedAt = :now where s.id = :id and s.status = 'ACTIVE'")
+    int touch(@Param("id") String id, @Param("now") LocalDateTime now);
+}
@@ -2,6 +2,10 @@ package com.cloud.share.repository;
 
 import com.cloud.share.entity.UserCredit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,5 +15,20 @@ public interface UserCreditRepo extends JpaRepository<UserCredit, Integer> {
 
     Optional<UserCredit> findByUsername(String username);
 
+    // check and deduct in one statement, so concurrent uploads can never overdraw
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update UserCredit c set c.credits = c.credits - :count where c.username = :username and c.credits >= :count")
+    int deductCredits(@Param("username") String username, @Param("count") int count);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update UserCredit c set c.credits = c.credits + :count where c.username = :username")
+    int addCredits(@Param("username") String username, @Param("count") int count);
+
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query("update UserCredit c set c.credits = c.credits + :count, c.plan = :plan where c.username = :username")
+    int addCredits(@Param("username") String username, @Param("count") int count, @Param("plan") String plan);
 
 }
@@ -0,0 +1,139 @@
+package com.cloud.share.serviceImpl;
+
+import com.cloud.share.dto.FileMetaDataDto;
+import com.cloud.share.util.HandoffBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// builds a ZIP straight into the response: one entry at a time, nothing of the archive is kept on heap or disk
+@Slf4j
+@Service
+public class ArchiveService {
+
+    // content that is compressed already, deflating it again only burns CPU
+    private static final List<String> COMPRESSED_TYPES = List.of(
+            "image/jpeg", "image/png", "image/gif", "image/webp", "video/", "audio/",
+            "application/zip", "application/gzip", "application/x-gzip", "application/x-7z-compressed",
+            "application/x-rar-compressed", "application/vnd.rar", "application/pdf",
+            "application/vnd.openxmlformats-officedocument");
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    @Value("${download.archive.prefetch:3}")
+    private int prefetch;
+
+    @Autowired
+    private MinIOService minIOService;
+
+    @Autowired
+    @Qualifier("archiveExecutor")
+    private AsyncTaskExecutor archiveExecutor;
+
+    public void writeZip(List<FileMetaDataDto> files, OutputStream outputStream) throws IOException {
+        Deque<CompletableFuture<InputStream>> opened = new ArrayDeque<>();
+        int next = 0;
+        Set<String> names = new HashSet<>();
+
+        // ZipOutputStream.write is synchronized, so it only ever writes to memory; we drain to the client outside it
+        HandoffBuffer pending = new HandoffBuffer(2 * COPY_BUFFER_SIZE);
+        ZipOutputStream zip = new ZipOutputStream(pending);
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        try {
+            for (FileMetaDataDto file : files) {
+                // keep the next few objects opening in parallel, MinIO's time to first byte overlaps our writes
+                while (next < files.size() && opened.size() <= prefetch) {
+                    String objectName = files.get(next++).getUploadFileName();
+                    opened.add(CompletableFuture.supplyAsync(() -> minIOService.downloadFile(objectName), archiveExecutor));
+                }
+
+                ZipEntry entry = new ZipEntry(uniqueName(file.getOriginalFileName(), names));
+                if (file.getUploadAt() != null) {
+                    entry.setTime(file.getUploadAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+                }
+                zip.setLevel(isCompressed(file.getType()) ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+                zip.putNextEntry(entry);
+                try (InputStream stored = await(opened.poll());
+                     InputStream inputStream = minIOService.decode(stored, file.getCodec())) {
+                    int read;
+                    while ((read = inputStream.read(buffer)) > 0) {
+                        zip.write(buffer, 0, read);
+                        pending.drainTo(outputStream);
+                    }
+                }
+                zip.closeEntry();
+                pending.drainTo(outputStream);
+            }
+            zip.finish();
+            pending.drainTo(outputStream);
+            outputStream.flush();
+        } finally {
+            // client went away or MinIO failed: close whatever was opened ahead
+            for (CompletableFuture<InputStream> future : opened) {
+                future.thenAccept(this::closeQuietly);
+            }
+        }
+    }
+
+    private InputStream await(CompletableFuture<InputStream> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while opening file", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error occurred while opening file: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private boolean isCompressed(String type) {
+        if (!StringUtils.hasText(type)) {
+            return false;
+        }
+        String lower = type.toLowerCase();
+        return COMPRESSED_TYPES.stream().anyMatch(lower::startsWith);
+    }
+
+    // entry names are flat and unique, "a.txt" twice becomes "a.txt" and "a (1).txt"
+    private String uniqueName(String originalFileName, Set<String> names) {
+        String name = StringUtils.hasText(originalFileName) ? StringUtils.getFilename(originalFileName.replace('\\', '/')) : null;
+        if (!StringUtils.hasText(name) || name.equals("..")) {
+            name = "file";
+        }
+
+        String base = StringUtils.stripFilenameExtension(name);
+        String extension = name.substring(base.length());
+        String candidate = name;
+        for (int i = 1; !names.add(candidate); i++) {
+            candidate = base + " (" + i + ")" + extension;
+        }
+        return candidate;
+    }
+
+    private void closeQuietly(InputStream inputStream) {
+        try {
+            inputStream.close();
+        } catch (IOException e) {
+            log.error("ArchiveService :: closeQuietly :: " + e.getMessage());
+        }
+    }
+}
@@ -69,10 +69,6 @@ public class AuthServiceImpl implements AuthService {
         user.setStatus(status);
 
 
-        // initial credit should be 5
-        user.setCredits(5);
-
-
         user.setPassword(passwordEncoder.encode(user.getPassword()));
 
 
@@ -82,7 +78,7 @@ public class AuthServiceImpl implements AuthService {
             //mail send logic
             emailSend(savedUser, apiUrl);
 
-            // set credit plan also initial basic
+            // set credit plan also initial basic, UserCredit is the only place credits live
             userCreditsService.createInitialCredit(savedUser.getEmail());
 
 
@@ -0,0 +1,197 @@
+package com.cloud.share.serviceImpl;
+
+import com.cloud.share.config.security.CustomUserDetails;
+import com.cloud.share.entity.UserCredit;
+import com.cloud.share.repository.UserCreditRepo;
+import com.cloud.share.util.ThrottledInputStream;
+import com.cloud.share.util.ThrottledOutputStream;
+import com.cloud.share.util.TokenBucket;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+// per user (by plan) and per anonymous client byte rates; every stream of the same user draws from one
+// bucket, so opening more connections doesn't buy more bandwidth. A rate of 0 means unlimited.
+@Service
+public class BandwidthService {
+
+    private static final String ANONYMOUS = "ANONYMOUS";
+
+    @Value("${bandwidth.enabled:false}")
+    private boolean enabled;
+
+    @Value("${bandwidth.burst:1MB}")
+    private DataSize burst;
+
+    @Value("${bandwidth.download.anonymous:2MB}")
+    private DataSize downloadAnonymous;
+
+    @Value("${bandwidth.download.basic:5MB}")
+    private DataSize downloadBasic;
+
+    @Value("${bandwidth.download.premium:20MB}")
+    private DataSize downloadPremium;
+
+    @Value("${bandwidth.download.ultimate:0}")
+    private DataSize downloadUltimate;
+
+    @Value("${bandwidth.upload.basic:5MB}")
+    private DataSize uploadBasic;
+
+    @Value("${bandwidth.upload.premium:20MB}")
+    private DataSize uploadPremium;
+
+    @Value("${bandwidth.upload.ultimate:0}")
+    private DataSize uploadUltimate;
+
+    // a plan change shows up on this node immediately (planChanged), elsewhere within this time
+    @Value("${bandwidth.plan-cache-ttl:5m}")
+    private Duration planCacheTtl;
+
+    @Autowired
+    private UserCreditRepo userCreditRepo;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, TokenBucket> buckets;
+
+    private Cache<String, String> plans;
+
+    private final Map<String, Timer> waits = new ConcurrentHashMap<>();
+
+    // what a stream needs to pace itself, resolved on the request thread before the body is written
+    public static final class Throttle {
+
+        public static final Throttle UNLIMITED = new Throttle(null, null);
+
+        private final TokenBucket bucket;
+
+        private final LongConsumer onWait;
+
+        private Throttle(TokenBucket bucket, LongConsumer onWait) {
+            this.bucket = bucket;
+            this.onWait = onWait;
+        }
+
+        public boolean isLimited() {
+            return bucket != null;
+        }
+
+        public InputStream wrap(InputStream in) {
+            return bucket == null ? in : new ThrottledInputStream(in, bucket, onWait);
+        }
+
+        public OutputStream wrap(OutputStream out) {
+            return bucket == null ? out : new ThrottledOutputStream(out, bucket, onWait);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        // an idle bucket is full anyway, dropping it loses nothing
+        buckets = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        plans = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(planCacheTtl)
+                .build();
+    }
+
+    // logged in users by plan, everyone else by client address
+    public Throttle forDownload(HttpServletRequest request) {
+        if (!enabled) {
+            return Throttle.UNLIMITED;
+        }
+        String email = loggedInEmail();
+        if (email == null) {
+            return throttle("download", ANONYMOUS, "addr:" + request.getRemoteAddr(), downloadAnonymous);
+        }
+        String plan = plan(email);
+        DataSize rate = switch (plan) {
+            case "ULTIMATE" -> downloadUltimate;
+            case "PREMIUM" -> downloadPremium;
+            default -> downloadBasic;
+        };
+        return throttle("download", plan, "user:" + email, rate);
+    }
+
+    // uploads are always authenticated
+    public Throttle forUpload() {
+        String email = loggedInEmail();
+        if (!enabled || email == null) {
+            return Throttle.UNLIMITED;
+        }
+        String plan = plan(email);
+        DataSize rate = switch (plan) {
+            case "ULTIMATE" -> uploadUltimate;
+            case "PREMIUM" -> uploadPremium;
+            default -> uploadBasic;
+        };
+        return throttle("upload", plan, "user:" + email, rate);
+    }
+
+    public void planChanged(String email) {
+        plans.invalidate(email);
+    }
+
+    private Throttle throttle(String direction, String tier, String identity, DataSize rate) {
+        if (rate.toBytes() <= 0) {
+            return Throttle.UNLIMITED;
+        }
+        // the tier is part of the key, so an upgrade starts on a bucket with the new rate
+        String key = direction + ":" + tier + ":" + identity;
+        TokenBucket bucket = buckets.getIfPresent(key);
+        if (bucket == null) {
+            TokenBucket created = new TokenBucket(rate.toBytes(), burst.toBytes());
+            bucket = buckets.asMap().putIfAbsent(key, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+
+        Timer timer = waits.computeIfAbsent(direction + ":" + tier, k -> Timer.builder("cloudshare.bandwidth.throttled")
+                .description("Time streams were held back by their bandwidth limit")
+                .tag("direction", direction)
+                .tag("tier", tier)
+                .register(meterRegistry));
+        return new Throttle(bucket, nanos -> timer.record(nanos, TimeUnit.NANOSECONDS));
+    }
+
+    // looked up outside the cache's compute lock, a concurrent miss just reads the row twice
+    private String plan(String email) {
+        String plan = plans.getIfPresent(email);
+        if (plan == null) {
+            plan = userCreditRepo.findByUsername(email).map(UserCredit::getPlan).orElse("BASIC");
+            plans.put(email, plan);
+        }
+        return plan;
+    }
+
+    private String loggedInEmail() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof CustomUserDetails user) {
+            return user.getUser().getEmail();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,208 @@
+package com.cloud.share.serviceImpl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// node local copies of hot public objects, so popular share links are served from disk instead of MinIO.
+// Objects are never rewritten, so a cached copy can only go stale by being deleted or made private.
+@Slf4j
+@Service
+public class DownloadCacheService {
+
+    // an evicted file may still be about to be sent by Tomcat, give it time to open the file first
+    private static final long DELETE_DELAY_SECONDS = 30;
+
+    private static final String SUBDIRECTORY = "cloudshare-downloads";
+
+    @Value("${download.cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${download.cache.dir:${java.io.tmpdir}/cloudshare-cache}")
+    private String cacheDir;
+
+    @Value("${download.cache.max-size:1GB}")
+    private DataSize maxSize;
+
+    @Value("${download.cache.max-object-size:100MB}")
+    private DataSize maxObjectSize;
+
+    // a fill is a second full GET from MinIO, so an object has to be asked for this often first
+    @Value("${download.cache.admit-after:3}")
+    private int admitAfter;
+
+    @Value("${download.cache.admit-window:10m}")
+    private Duration admitWindow;
+
+    @Autowired
+    private MinIOService minIOService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("downloadCacheExecutor")
+    private ThreadPoolTaskExecutor downloadCacheExecutor;
+
+    private Path dir;
+
+    // W-TinyLFU keeps the frequently requested objects, one-off downloads don't push them out
+    private Cache<String, Path> cache;
+
+    private final Set<String> filling = ConcurrentHashMap.newKeySet();
+
+    // recent misses per object, dropped once the object went a whole window without one
+    private Cache<String, AtomicInteger> misses;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        // the index lives in memory, whatever a previous run left behind is unreachable. The configured
+        // path may be shared (/tmp, /var/cache), so the service works in its own subdirectory and only
+        // removes files it named itself
+        dir = Paths.get(cacheDir).resolve(SUBDIRECTORY);
+        Files.createDirectories(dir);
+        removeLeftovers();
+
+        cache = Caffeine.newBuilder()
+                .maximumWeight(Math.max(1, maxSize.toKilobytes()))
+                .weigher((String objectName, Path path) -> weightInKb(path))
+                .removalListener((String objectName, Path path, RemovalCause cause) -> deleteLater(path))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "downloadCache");
+        misses = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(admitWindow)
+                .build();
+    }
+
+    public Optional<Path> get(String objectName) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.getIfPresent(objectName));
+    }
+
+    // copies the object to local disk in the background once it has missed often enough to look hot;
+    // one-off downloads never cost a second fetch. The current request is still served from MinIO
+    public void fillAsync(String objectName, long size) {
+        if (!enabled || size > maxObjectSize.toBytes() || cache.asMap().containsKey(objectName)
+                || !admit(objectName) || !filling.add(objectName)) {
+            return;
+        }
+        try {
+            downloadCacheExecutor.execute(() -> {
+                try {
+                    fill(objectName);
+                } finally {
+                    filling.remove(objectName);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            filling.remove(objectName);
+        }
+    }
+
+    private boolean admit(String objectName) {
+        AtomicInteger count = misses.getIfPresent(objectName);
+        if (count == null) {
+            AtomicInteger created = new AtomicInteger();
+            count = misses.asMap().putIfAbsent(objectName, created);
+            if (count == null) {
+                count = created;
+            }
+        }
+        if (count.incrementAndGet() < admitAfter) {
+            return false;
+        }
+        misses.invalidate(objectName);
+        return true;
+    }
+
+    public void invalidate(String objectName) {
+        if (enabled) {
+            cache.invalidate(objectName);
+        }
+    }
+
+    private void fill(String objectName) {
+        Path path = dir.resolve(UUID.randomUUID().toString());
+        try (InputStream inputStream = minIOService.downloadFile(objectName)) {
+            Files.copy(inputStream, path);
+            cache.put(objectName, path);
+        } catch (Exception e) {
+            log.error("DownloadCacheService :: fill :: " + objectName + " :: " + e.getMessage());
+            deleteQuietly(path);
+        }
+    }
+
+    // cached copies are named by a random UUID, anything else in the directory isn't ours to touch
+    private void removeLeftovers() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(Files::isRegularFile)
+                    .filter(path -> isCacheFileName(path.getFileName().toString()))
+                    .forEach(this::deleteQuietly);
+        }
+    }
+
+    private static boolean isCacheFileName(String name) {
+        try {
+            return UUID.fromString(name).toString().equals(name);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private int weightInKb(Path path) {
+        try {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(1, Files.size(path) / 1024));
+        } catch (IOException e) {
+            return 1;
+        }
+    }
+
+    private void deleteLater(Path path) {
+        if (path != null) {
+            CompletableFuture.runAsync(() -> deleteQuietly(path),
+                    CompletableFuture.delayedExecutor(DELETE_DELAY_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.error("DownloadCacheService :: delete :: " + path + " :: " + e.getMessage());
+        }
+    }
+}
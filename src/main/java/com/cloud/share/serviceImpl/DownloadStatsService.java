@@ -0,0 +1,263 @@
+package com.cloud.share.serviceImpl;
+
+import com.cloud.share.dto.FileDownloadStatsDto;
+import com.cloud.share.entity.FileDownloadStats;
+import com.cloud.share.entity.FileMetaDataDocument;
+import com.cloud.share.entity.User;
+import com.cloud.share.exception.ResourceNotFoundException;
+import com.cloud.share.repository.FileDownloadStatsRepo;
+import com.cloud.share.repository.FileMetaDataRepo;
+import com.cloud.share.util.CommonUtil;
+import com.cloud.share.util.HyperLogLog;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// requests only bump striped in-memory counters; a scheduled flush writes everything that changed
+// in one batch, so a popular link costs one row update per interval instead of one per download
+@Slf4j
+@Service
+public class DownloadStatsService {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Value("${analytics.enabled:true}")
+    private boolean enabled;
+
+    @Autowired
+    private FileDownloadStatsRepo fileDownloadStatsRepo;
+
+    @Autowired
+    private FileMetaDataRepo fileMetaDataRepo;
+
+    private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+
+    // not yet flushed activity of one file on this node. The counters are never reset, a flush subtracts
+    // what it read, so increments landing meanwhile simply stay for the next flush
+    private static class Pending {
+        final LongAdder downloads = new LongAdder();
+        final LongAdder views = new LongAdder();
+        final HyperLogLog visitors = new HyperLogLog();  // never reset, merging it again is harmless
+        final AtomicBoolean visitorsChanged = new AtomicBoolean();
+        volatile LocalDateTime lastDownloadAt;
+        // request threads between finding this entry and updating it; an idle entry is only dropped
+        // from the map while this is 0, and once retired nobody updates it any more
+        final LongAdder writers = new LongAdder();
+        volatile boolean retired;
+    }
+
+    private record Delta(long downloads, long views, byte[] visitors, LocalDateTime lastDownloadAt) {
+    }
+
+    public void recordDownload(String fileId, String visitor) {
+        if (!enabled) {
+            return;
+        }
+        update(fileId, p -> {
+            p.downloads.increment();
+            p.lastDownloadAt = LocalDateTime.now();
+            addVisitor(p, visitor);
+        });
+    }
+
+    public void recordView(String fileId, String visitor) {
+        if (!enabled) {
+            return;
+        }
+        update(fileId, p -> {
+            p.views.increment();
+            addVisitor(p, visitor);
+        });
+    }
+
+    private void addVisitor(Pending p, String visitor) {
+        // most requests come from visitors already counted and leave the sketch untouched
+        if (visitor != null && p.visitors.add(visitor)) {
+            p.visitorsChanged.set(true);
+        }
+    }
+
+    // an entry retired by a concurrent flush is about to leave the map, go again and get a fresh one
+    private void update(String fileId, Consumer<Pending> change) {
+        while (true) {
+            Pending p = pending.computeIfAbsent(fileId, id -> new Pending());
+            p.writers.increment();
+            try {
+                if (!p.retired) {
+                    change.accept(p);
+                    return;
+                }
+            } finally {
+                p.writers.decrement();
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // owner only; includes what this node hasn't flushed yet
+    public FileDownloadStatsDto getStats(String fileId) throws ResourceNotFoundException {
+        User user = CommonUtil.getLoggedInUser();
+        FileMetaDataDocument file = fileMetaDataRepo.findById(fileId)
+                .filter(f -> user.getEmail().equals(f.getUsername()))
+                .orElseThrow(() -> new ResourceNotFoundException("file not found"));
+
+        FileDownloadStats stored = fileDownloadStatsRepo.findById(file.getId()).orElse(null);
+        long downloads = stored != null && stored.getDownloads() != null ? stored.getDownloads() : 0;
+        long views = stored != null && stored.getViews() != null ? stored.getViews() : 0;
+        LocalDateTime lastDownloadAt = stored != null ? stored.getLastDownloadAt() : null;
+        HyperLogLog visitors = new HyperLogLog(stored != null ? stored.getVisitors() : null);
+
+        Pending p = pending.get(file.getId());
+        if (p != null) {
+            downloads += p.downloads.sum();
+            views += p.views.sum();
+            visitors.merge(p.visitors.toByteArray());
+            lastDownloadAt = latest(lastDownloadAt, p.lastDownloadAt);
+        }
+
+        return FileDownloadStatsDto.builder()
+                .fileId(file.getId())
+                .downloads(downloads)
+                .views(views)
+                .uniqueVisitors(visitors.cardinality())
+                .lastDownloadAt(lastDownloadAt)
+                .build();
+    }
+
+    // the file is gone, so are its numbers
+    public void discard(String fileId) {
+        pending.remove(fileId);
+        fileDownloadStatsRepo.deleteById(fileId);
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.flush-interval-ms:10000}")
+    public void flush() {
+        Map<String, Delta> batch = new HashMap<>();
+        for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+            Pending p = entry.getValue();
+            Delta delta = drain(p);
+            // idle for a whole interval, drop it so the map only holds files being downloaded;
+            // whatever still landed before it was retired goes out with this flush
+            if (delta == null && retire(entry.getKey(), p)) {
+                delta = drain(p);
+            }
+            if (delta != null) {
+                batch.put(entry.getKey(), delta);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<FileDownloadStats> rows = new ArrayList<>();
+            Map<String, FileDownloadStats> existing = new HashMap<>();
+            fileDownloadStatsRepo.findAllById(batch.keySet()).forEach(row -> existing.put(row.getFileId(), row));
+            batch.forEach((fileId, delta) -> rows.add(apply(existing.get(fileId), fileId, delta)));
+            fileDownloadStatsRepo.saveAll(rows);
+        } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+            // another node flushed some of the same files in between, redo them one by one
+            batch.forEach(this::flushOne);
+        } catch (Exception e) {
+            log.error("DownloadStatsService :: flush :: " + e.getMessage());
+            batch.forEach(this::requeue);
+        }
+    }
+
+    // what changed since the last drain, null if nothing did
+    private Delta drain(Pending p) {
+        boolean visitorsChanged = p.visitorsChanged.getAndSet(false);
+        long downloads = p.downloads.sum();
+        p.downloads.add(-downloads);
+        long views = p.views.sum();
+        p.views.add(-views);
+        if (downloads == 0 && views == 0 && !visitorsChanged) {
+            return null;
+        }
+        return new Delta(downloads, views, visitorsChanged ? p.visitors.toByteArray() : null, p.lastDownloadAt);
+    }
+
+    // a request thread either registered as a writer before this looked, or sees the flag and moves on
+    private boolean retire(String fileId, Pending p) {
+        p.retired = true;
+        if (p.writers.sum() != 0) {
+            p.retired = false;
+            return false;
+        }
+        pending.remove(fileId, p);
+        return true;
+    }
+
+    private void flushOne(String fileId, Delta delta) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                FileDownloadStats row = fileDownloadStatsRepo.findById(fileId).orElse(null);
+                fileDownloadStatsRepo.saveAndFlush(apply(row, fileId, delta));
+                return;
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    log.error("DownloadStatsService :: flushOne :: " + fileId + " :: " + e.getMessage());
+                }
+            } catch (Exception e) {
+                log.error("DownloadStatsService :: flushOne :: " + fileId + " :: " + e.getMessage());
+                break;
+            }
+        }
+        requeue(fileId, delta);
+    }
+
+    private FileDownloadStats apply(FileDownloadStats row, String fileId, Delta delta) {
+        if (row == null) {
+            row = FileDownloadStats.builder().fileId(fileId).downloads(0L).views(0L).build();
+        }
+        row.setDownloads(row.getDownloads() + delta.downloads());
+        row.setViews(row.getViews() + delta.views());
+        row.setLastDownloadAt(latest(row.getLastDownloadAt(), delta.lastDownloadAt()));
+        if (delta.visitors() != null) {
+            HyperLogLog visitors = new HyperLogLog(row.getVisitors());
+            visitors.merge(delta.visitors());
+            row.setVisitors(visitors.toByteArray());
+        }
+        return row;
+    }
+
+    // counts that couldn't be written go back into the next flush
+    private void requeue(String fileId, Delta delta) {
+        update(fileId, p -> {
+            p.downloads.add(delta.downloads());
+            p.views.add(delta.views());
+            if (delta.visitors() != null) {
+                p.visitors.merge(delta.visitors());
+                p.visitorsChanged.set(true);
+            }
+            p.lastDownloadAt = latest(p.lastDownloadAt, delta.lastDownloadAt());
+        });
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return b != null && b.isAfter(a) ? b : a;
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
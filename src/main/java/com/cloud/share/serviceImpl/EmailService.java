@@ -5,12 +5,16 @@ import com.cloud.share.dto.EmailRequest;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Component;
 
 import java.io.UnsupportedEncodingException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Component
 public class EmailService {
@@ -18,6 +22,10 @@ public class EmailService {
     @Autowired
     private JavaMailSender mailSender;
 
+    @Autowired
+    @Qualifier("mailExecutor")
+    private TaskExecutor mailExecutor;
+
     @Value("${spring.mail.username}")
     private String mailFrom;
 
@@ -32,6 +40,14 @@ public class EmailService {
         helper.setSubject(emailRequest.getSubject());
         helper.setText(emailRequest.getMessage(), true);
 
-        mailSender.send(mimeMessage);
+        // the caller still waits for the result, only the thread doing the SMTP exchange differs
+        try {
+            CompletableFuture.runAsync(() -> mailSender.send(mimeMessage), mailExecutor).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
     }
 }
@@ -0,0 +1,84 @@
+package com.cloud.share.serviceImpl;
+
+import com.cloud.share.entity.FileMetaDataDocument;
+import com.cloud.share.repository.FileMetaDataRepo;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// in-memory view of file rows for the unauthenticated lookups; unknown ids are cached too (briefly),
+// so enumerating random ids doesn't turn into one query each. Callers must treat the rows as read only.
+// Invalidation only reaches this node, so the TTL is what bounds how long another node keeps serving a
+// file its owner just made private: keep it at seconds. Even then a hot file costs one query per TTL.
+@Service
+public class FileMetaDataCacheService {
+
+    @Value("${file.cache.max-size:50000}")
+    private long maxSize;
+
+    @Value("${file.cache.ttl:5s}")
+    private Duration ttl;
+
+    @Value("${file.cache.negative-ttl:5s}")
+    private Duration negativeTtl;
+
+    @Autowired
+    private FileMetaDataRepo fileMetaDataRepo;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // futures rather than values: the row is loaded on the caller's thread, never inside the map's lock,
+    // and concurrent misses for one id share a single query
+    private AsyncCache<String, Optional<FileMetaDataDocument>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.creating((String id, Optional<FileMetaDataDocument> file) ->
+                        file.isPresent() ? ttl : negativeTtl))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "fileMetaData");
+    }
+
+    public Optional<FileMetaDataDocument> findById(String id) {
+        CompletableFuture<Optional<FileMetaDataDocument>> cached = cache.getIfPresent(id);
+        if (cached == null) {
+            CompletableFuture<Optional<FileMetaDataDocument>> load = new CompletableFuture<>();
+            cached = cache.asMap().putIfAbsent(id, load);
+            if (cached == null) {
+                try {
+                    load.complete(fileMetaDataRepo.findById(id));
+                } catch (RuntimeException e) {
+                    // failed loads are dropped by the cache, the next request tries again
+                    load.completeExceptionally(e);
+                }
+                cached = load;
+            }
+        }
+
+        try {
+            return cached.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    // called whenever a row changes or appears, on this node; other nodes catch up within the (short) TTL
+    public void invalidate(String id) {
+        cache.synchronous().invalidate(id);
+    }
+}
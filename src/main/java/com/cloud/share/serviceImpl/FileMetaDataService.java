@@ -1,27 +1,60 @@
 package com.cloud.share.serviceImpl;
 
+import com.cloud.share.dto.FileListQuery;
 import com.cloud.share.dto.FileMetaDataDto;
+import com.cloud.share.dto.FileMetaDataMapper;
+import com.cloud.share.dto.FileMetaDataRow;
+import com.cloud.share.dto.FilePageDto;
+import com.cloud.share.dto.StoredObjectDto;
+import com.cloud.share.dto.UploadPrecheckRequest;
 import com.cloud.share.entity.FileMetaDataDocument;
 import com.cloud.share.entity.User;
 import com.cloud.share.exception.ResourceNotFoundException;
 import com.cloud.share.exception.SuccessException;
 import com.cloud.share.repository.FileMetaDataRepo;
 import com.cloud.share.util.CommonUtil;
-import org.modelmapper.ModelMapper;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+@Slf4j
 @Service
 public class FileMetaDataService {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    private static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
     private UserCreditsService userCreditsService;
 
@@ -29,72 +62,433 @@ public class FileMetaDataService {
     private FileMetaDataRepo fileMetaDataRepo;
 
     @Autowired
-    private ModelMapper mapper;
+    private FileMetaDataMapper fileMetaDataMapper;
 
     @Autowired
     private MinIOService minIOService;
 
+    @Autowired
+    private StoredObjectService storedObjectService;
+
+    @Autowired
+    private DownloadCacheService downloadCacheService;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private PresignedUrlService presignedUrlService;
+
+    @Autowired
+    private FileMetaDataCacheService fileMetaDataCacheService;
+
+    @Autowired
+    private DownloadStatsService downloadStatsService;
+
+    @Autowired
+    private BandwidthService bandwidthService;
+
+    @Autowired
+    private FileSearchService fileSearchService;
+
+    @Autowired
+    private StorageUsageService storageUsageService;
+
+    @Autowired
+    @Qualifier("uploadExecutor")
+    private AsyncTaskExecutor uploadExecutor;
+
     public List<FileMetaDataDto> uploadFiles(MultipartFile files[]) throws IOException {
         User user = CommonUtil.getLoggedInUser();
 
-        if (!userCreditsService.hasEnoughCredits(files.length)) {
+        // one credit per file, reserved in a single conditional update before any bytes move
+        String batchId = UUID.randomUUID().toString();
+        if (!userCreditsService.reserveCredits(files.length, batchId)) {
             throw new SuccessException("Not enough credits . Please purchase your credit first");
         }
+        // and the bytes, against the plan's quota
+        List<StorageUsageService.Item> usage = Arrays.stream(files)
+                .map(file -> new StorageUsageService.Item(file.getContentType(), file.getSize()))
+                .toList();
+        if (!storageUsageService.reserve(user.getEmail(), usage)) {
+            userCreditsService.releaseCredits(user.getEmail(), files.length, batchId);
+            throw new SuccessException("Storage quota exceeded. Please upgrade your plan");
+        }
+
+        // push every file to MinIO concurrently, the batch takes as long as its largest file
+        List<CompletableFuture<FileMetaDataDocument>> uploads = Arrays.stream(files)
+                .map(file -> CompletableFuture.supplyAsync(() -> {
+                    // Upload to MinIO, then fold it into existing content with the same hash
+                    StoredObjectDto uploaded = minIOService.uploadFile(file);
+                    StoredObjectDto stored;
+                    try {
+                        stored = storedObjectService.register(uploaded);
+                    } catch (RuntimeException e) {
+                        // a failed task is skipped by the batch cleanup, so its object goes here
+                        discardQuietly(() -> minIOService.deleteFile(uploaded.getObjectName()), uploaded.getObjectName());
+                        throw e;
+                    }
+
+                    return FileMetaDataDocument.builder()
+                            .uploadFileName(stored.getObjectName())  // MinIO object key, possibly shared
+                            .originalFileName(file.getOriginalFilename())  // Original filename for display
+                            .fileLocation(stored.getObjectName())  // MinIO object key (same as uploadFileName)
+                            .size(file.getSize())
+                            .sha256(stored.getSha256())
+                            .codec(stored.getCodec())
+                            .type(file.getContentType())
+                            .username(user.getEmail())
+                            .isPublic(false)
+                            .uploadAt(LocalDateTime.now())
+                            .build();
+                }, uploadExecutor))
+                .toList();
+
+        try {
+            CompletableFuture.allOf(uploads.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            // allOf only fails after every upload settled, so nothing is still in flight here
+            removeUploadedObjects(uploads.stream()
+                    .filter(upload -> !upload.isCompletedExceptionally())
+                    .map(CompletableFuture::join)
+                    .toList());
+            userCreditsService.releaseCredits(user.getEmail(), files.length, batchId);
+            storageUsageService.release(user.getEmail(), usage);
+            throw new RuntimeException("Error occurred while uploading files: " + e.getCause().getMessage());
+        }
+
+        List<FileMetaDataDocument> savedFiles = uploads.stream().map(CompletableFuture::join).toList();
+
+        try {
+            // one batched insert for the whole upload
+            fileMetaDataRepo.saveAll(savedFiles);
+        } catch (RuntimeException e) {
+            removeUploadedObjects(savedFiles);
+            userCreditsService.releaseCredits(user.getEmail(), files.length, batchId);
+            storageUsageService.release(user.getEmail(), usage);
+            throw e;
+        }
+        // the ids may have been probed (and negatively cached) before they existed
+        savedFiles.forEach(f -> fileMetaDataCacheService.invalidate(f.getId()));
+        fileSearchService.index(savedFiles);
+        thumbnailService.enqueue(savedFiles);
+
+        return savedFiles.stream().map(f -> fileMetaDataMapper.toDto(f)).toList();
+    }
+
+    private void removeUploadedObjects(List<FileMetaDataDocument> files) {
+        for (FileMetaDataDocument file : files) {
+            try {
+                releaseContent(file);
+            } catch (RuntimeException e) {
+                log.error("FileMetaDataService :: removeUploadedObjects :: " + file.getUploadFileName() + " :: " + e.getMessage());
+            }
+        }
+    }
+
+    // reads the multipart body part by part and pipes every file straight into MinIO,
+    // so nothing is buffered to the servlet temp dir and the multipart size limits don't apply
+    public List<FileMetaDataDto> uploadFilesStreaming(HttpServletRequest request) throws IOException {
+        User user = CommonUtil.getLoggedInUser();
+
+        if (!JakartaServletFileUpload.isMultipartContent(request)) {
+            throw new IllegalArgumentException("multipart/form-data request expected");
+        }
+
+        JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> upload = new JakartaServletFileUpload<>();
+        FileItemInputIterator iterator = upload.getItemIterator(request);
+        BandwidthService.Throttle throttle = bandwidthService.forUpload();
 
         List<FileMetaDataDocument> savedFiles = new ArrayList<>();
 
-        for (MultipartFile file : files) {
-            // Upload to MinIO and get unique filename
-            String uniqueFileName = minIOService.uploadFile(file);
+        while (iterator.hasNext()) {
+            FileItemInput item = iterator.next();
+            if (item.isFormField() || !StringUtils.hasText(item.getName())) {
+                continue;
+            }
+
+            // file count is unknown up front, so reserve credits per part
+            if (!userCreditsService.reserveCredits(1, item.getName())) {
+                throw new SuccessException("Not enough credits . Please purchase your credit first");
+            }
+
+            try (InputStream inputStream = throttle.wrap(item.getInputStream())) {
+                StoredObjectDto stored = minIOService.uploadStream(inputStream, item.getName(), item.getContentType());
+                savedFiles.add(recordUpload(user, stored, item.getName(), item.getContentType(), () ->
+                        minIOService.deleteFile(stored.getObjectName())));
+            } catch (IOException | RuntimeException e) {
+                userCreditsService.releaseCredits(user.getEmail(), 1, item.getName());
+                throw e;
+            }
+        }
+
+        return savedFiles.stream().map(f -> fileMetaDataMapper.toDto(f)).toList();
+    }
+
+    // the object is already in MinIO and its credit reserved, dedupe it and write the metadata row. Its size is
+    // only known now, so this is where it is counted against the quota. When this throws, nothing is left
+    // behind: discard has dropped the object (or its content reference is released) and the caller only
+    // hands the credit back
+    public FileMetaDataDocument recordUpload(User user, StoredObjectDto stored, String originalFileName, String type,
+                                             Runnable discard) {
+        if (!storageUsageService.reserve(user.getEmail(), type, stored.getSize())) {
+            discardQuietly(discard, stored.getObjectName());
+            throw new SuccessException("Storage quota exceeded. Please upgrade your plan");
+        }
+
+        StoredObjectDto content;
+        try {
+            content = storedObjectService.register(stored);
+        } catch (RuntimeException e) {
+            storageUsageService.release(user.getEmail(), type, stored.getSize());
+            discardQuietly(discard, stored.getObjectName());
+            throw e;
+        }
+        try {
+            return saveMetaData(user, content, originalFileName, type);
+        } catch (RuntimeException e) {
+            storageUsageService.release(user.getEmail(), type, stored.getSize());
+            // register may have pointed us at shared content, so drop our reference rather than the object
+            discardQuietly(() -> releaseContent(FileMetaDataDocument.builder()
+                    .sha256(content.getSha256())
+                    .uploadFileName(content.getObjectName())
+                    .build()), content.getObjectName());
+            throw e;
+        }
+    }
+
+    // cleanup must not hide the failure that caused it
+    private void discardQuietly(Runnable discard, String objectName) {
+        try {
+            discard.run();
+        } catch (RuntimeException e) {
+            log.error("FileMetaDataService :: recordUpload :: could not discard " + objectName + " :: " + e.getMessage());
+        }
+    }
+
+    // client sent only the hash; if the caller already holds that content the file is created without any bytes moving
+    public Optional<FileMetaDataDto> uploadByHash(UploadPrecheckRequest request) {
+        User user = CommonUtil.getLoggedInUser();
 
-            FileMetaDataDocument fileMetaData = FileMetaDataDocument.builder()
-                    .uploadFileName(uniqueFileName)  // Unique filename in MinIO
-                    .originalFileName(file.getOriginalFilename())  // Original filename for display
-                    .fileLocation(uniqueFileName)  // MinIO object key (same as uploadFileName)
-                    .size(file.getSize())
-                    .type(file.getContentType())
-                    .username(user.getEmail())
-                    .isPublic(false)
-                    .uploadAt(LocalDateTime.now())
-                    .build();
+        if (request.getSha256() == null || !request.getSha256().matches("[0-9a-fA-F]{64}")) {
+            throw new IllegalArgumentException("sha256 must be a hex encoded SHA-256 digest");
+        }
+        // size has to match too, a bare hash is too easy to replay
+        if (request.getSize() == null || !StringUtils.hasText(request.getFileName())) {
+            throw new IllegalArgumentException("size and fileName are required");
+        }
+        String sha256 = request.getSha256().toLowerCase();
+        // a hash proves nothing about holding the bytes, so only content the caller already stores in another
+        // file of theirs is reused; anything else has to be uploaded, and whether someone else stores it stays hidden
+        if (!fileMetaDataRepo.existsByUsernameAndSha256(user.getEmail(), sha256)) {
+            return Optional.empty();
+        }
+        if (!userCreditsService.reserveCredits(1, sha256)) {
+            throw new SuccessException("Not enough credits . Please purchase your credit first");
+        }
 
-            // decrease 1 credit for 1 file
-            userCreditsService.consumeCredits();
+        if (!storageUsageService.reserve(user.getEmail(), request.getContentType(), request.getSize())) {
+            userCreditsService.releaseCredits(user.getEmail(), 1, sha256);
+            throw new SuccessException("Storage quota exceeded. Please upgrade your plan");
+        }
 
-            // save to database
-            fileMetaDataRepo.save(fileMetaData);
+        Optional<StoredObjectDto> stored = storedObjectService.claim(sha256, request.getSize());
+        if (stored.isEmpty()) {
+            // client has to send the bytes after all, which reserves again
+            userCreditsService.releaseCredits(user.getEmail(), 1, sha256);
+            storageUsageService.release(user.getEmail(), request.getContentType(), request.getSize());
+            return Optional.empty();
+        }
 
-            // add to response list
-            savedFiles.add(fileMetaData);
+        FileMetaDataDocument file;
+        try {
+            file = saveMetaData(user, stored.get(), request.getFileName(), request.getContentType());
+        } catch (RuntimeException e) {
+            // undo the claim, the credit and the bytes, in reverse order of taking them
+            discardQuietly(() -> storedObjectService.release(sha256), stored.get().getObjectName());
+            userCreditsService.releaseCredits(user.getEmail(), 1, sha256);
+            storageUsageService.release(user.getEmail(), request.getContentType(), request.getSize());
+            throw e;
         }
+        return Optional.of(fileMetaDataMapper.toDto(file));
+    }
 
-        return savedFiles.stream().map(f -> mapper.map(f, FileMetaDataDto.class)).toList();
+    private FileMetaDataDocument saveMetaData(User user, StoredObjectDto stored, String originalFileName, String type) {
+        FileMetaDataDocument fileMetaData = FileMetaDataDocument.builder()
+                .uploadFileName(stored.getObjectName())
+                .originalFileName(originalFileName)
+                .fileLocation(stored.getObjectName())
+                .size(stored.getSize())
+                .sha256(stored.getSha256())
+                .codec(stored.getCodec())
+                .type(type)
+                .username(user.getEmail())
+                .isPublic(false)
+                .uploadAt(LocalDateTime.now())
+                .build();
+
+        FileMetaDataDocument saved = fileMetaDataRepo.save(fileMetaData);
+        fileMetaDataCacheService.invalidate(saved.getId());
+        fileSearchService.index(List.of(saved));
+        thumbnailService.enqueue(List.of(saved));
+        return saved;
     }
 
     public List<FileMetaDataDto> getFiles() {
         User user = CommonUtil.getLoggedInUser();
 
-        List<FileMetaDataDocument> list = fileMetaDataRepo.findByUsername(user.getEmail());
+        List<FileMetaDataRow> list = fileMetaDataRepo.findRowsByUsername(user.getEmail());
+
+        return list.stream().map(this::toDto).toList();
+    }
+
+    // one page of the caller's files. Pages seek from the cursor along (username, sort key, id), so
+    // page 1000 costs the same index range scan as page 1; there is no OFFSET and no count query
+    public FilePageDto getFiles(FileListQuery query) {
+        String email = CommonUtil.getLoggedInUser().getEmail();
+
+        int limit = query.getLimit() == null ? DEFAULT_PAGE_SIZE : query.getLimit();
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        String sortKey = query.getSort() == null ? "uploadAt" : query.getSort();
+        if (!sortKey.equals("uploadAt") && !sortKey.equals("size")) {
+            throw new IllegalArgumentException("sort must be uploadAt or size");
+        }
+        if (query.getDirection() != null && !query.getDirection().equalsIgnoreCase("asc")
+                && !query.getDirection().equalsIgnoreCase("desc")) {
+            throw new IllegalArgumentException("direction must be asc or desc");
+        }
+        if (query.getVisibility() != null && !query.getVisibility().equalsIgnoreCase("public")
+                && !query.getVisibility().equalsIgnoreCase("private")) {
+            throw new IllegalArgumentException("visibility must be public or private");
+        }
+        boolean ascending = "asc".equalsIgnoreCase(query.getDirection());
+        String[] cursor = query.getCursor() == null ? null : decodeCursor(query.getCursor(), sortKey);
+
+        Specification<FileMetaDataDocument> spec = (root, criteria, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.equal(root.get("username"), email));
+            if (StringUtils.hasText(query.getType())) {
+                predicates.add(query.getType().endsWith("/")
+                        ? cb.like(root.get("type"), CommonUtil.escapeLike(query.getType()) + "%", '!')
+                        : cb.equal(root.get("type"), query.getType()));
+            }
+            if (query.getMinSize() != null) {
+                predicates.add(cb.ge(root.get("size"), query.getMinSize()));
+            }
+            if (query.getMaxSize() != null) {
+                predicates.add(cb.le(root.get("size"), query.getMaxSize()));
+            }
+            if (query.getFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("uploadAt"), query.getFrom()));
+            }
+            if (query.getTo() != null) {
+                predicates.add(cb.lessThan(root.get("uploadAt"), query.getTo()));
+            }
+            if (query.getVisibility() != null) {
+                predicates.add(query.getVisibility().equalsIgnoreCase("public")
+                        ? cb.isTrue(root.get("isPublic"))
+                        : cb.or(cb.isFalse(root.get("isPublic")), cb.isNull(root.get("isPublic"))));
+            }
+            if (cursor != null) {
+                predicates.add(sortKey.equals("size")
+                        ? after(cb, root.get("size"), Long.parseLong(cursor[1]), root.get("id"), cursor[2], ascending)
+                        : after(cb, root.get("uploadAt"), LocalDateTime.parse(cursor[1]), root.get("id"), cursor[2], ascending));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+
+        Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort sort = Sort.by(direction, sortKey).and(Sort.by(direction, "id"));
+        // one row more than asked tells us whether there is a next page
+        List<FileMetaDataRow> rows = fileMetaDataRepo.findRows(spec, sort, limit + 1);
+
+        boolean hasMore = rows.size() > limit;
+        List<FileMetaDataRow> page = hasMore ? rows.subList(0, limit) : rows;
+        return FilePageDto.builder()
+                .files(page.stream().map(this::toDto).toList())
+                .nextCursor(hasMore ? encodeCursor(sortKey, page.get(limit - 1)) : null)
+                .build();
+    }
+
+    // rows strictly past (value, id) in the walking direction
+    private <T extends Comparable<? super T>> Predicate after(CriteriaBuilder cb, Path<T> key, T value,
+                                                             Path<String> id, String lastId, boolean ascending) {
+        return ascending
+                ? cb.or(cb.greaterThan(key, value), cb.and(cb.equal(key, value), cb.greaterThan(id, lastId)))
+                : cb.or(cb.lessThan(key, value), cb.and(cb.equal(key, value), cb.lessThan(id, lastId)));
+    }
+
+    // opaque to clients: sort key, its value in the last row and that row's id
+    private String encodeCursor(String sortKey, FileMetaDataRow last) {
+        Object value = sortKey.equals("size") ? last.size() : last.uploadAt();
+        String cursor = sortKey + "|" + value + "|" + last.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor, String sortKey) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 3);
+            if (parts.length != 3 || !parts[0].equals(sortKey)) {
+                throw new IllegalArgumentException("cursor belongs to a different sort");
+            }
+            // fail here rather than inside the query
+            if (sortKey.equals("size")) {
+                Long.parseLong(parts[1]);
+            } else {
+                LocalDateTime.parse(parts[1]);
+            }
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + e.getMessage());
+        }
+    }
+
+    private FileMetaDataDto toDto(FileMetaDataDocument file) {
+        FileMetaDataDto dto = fileMetaDataMapper.toDto(file);
+        if (file.getThumbnailObject() != null) {
+            dto.setThumbnailUrl(presignedUrlService.getUrl(file.getThumbnailObject()));
+        }
+        return dto;
+    }
 
-        return list.stream().map(f -> mapper.map(f, FileMetaDataDto.class)).toList();
+    private FileMetaDataDto toDto(FileMetaDataRow row) {
+        FileMetaDataDto dto = fileMetaDataMapper.toDto(row);
+        if (row.thumbnailObject() != null) {
+            dto.setThumbnailUrl(presignedUrlService.getUrl(row.thumbnailObject()));
+        }
+        return dto;
     }
 
     public FileMetaDataDto getPublicFile(String id) throws ResourceNotFoundException {
-        Optional<FileMetaDataDocument> file = fileMetaDataRepo.findById(id);
+        Optional<FileMetaDataDocument> file = fileMetaDataCacheService.findById(id);
         if (file.isEmpty() || !file.get().getIsPublic()) {
             throw new ResourceNotFoundException("Unable to get the file");
         }
 
-        return mapper.map(file.get(), FileMetaDataDto.class);
+        // the content hash is what the upload precheck matches on, it stays with the owner
+        FileMetaDataDto dto = toDto(file.get());
+        dto.setSha256(null);
+        return dto;
+    }
+
+    // one query for a whole page of ids, keeps only files the caller owns or that are public
+    public List<FileMetaDataDto> getDownloadableFiles(List<String> ids) {
+        String email = CommonUtil.getLoggedInUser().getEmail();
+        return fileMetaDataRepo.findAllById(ids).stream()
+                .filter(f -> email.equals(f.getUsername()) || Boolean.TRUE.equals(f.getIsPublic()))
+                .map(f -> fileMetaDataMapper.toDto(f))
+                .toList();
     }
 
     public FileMetaDataDto getDownloadableFile(String id) throws ResourceNotFoundException {
-        Optional<FileMetaDataDocument> file = fileMetaDataRepo.findById(id);
+        Optional<FileMetaDataDocument> file = fileMetaDataCacheService.findById(id);
         if (file.isEmpty() || !file.get().getIsPublic()) {
             throw new ResourceNotFoundException("file not found");
         }
 
-        return mapper.map(file.get(), FileMetaDataDto.class);
+        return fileMetaDataMapper.toDto(file.get());
     }
 
     public void deleteFile(String id) throws Exception {
@@ -108,24 +502,46 @@ public class FileMetaDataService {
                 throw new RuntimeException("Not your file only try to access yours");
             }
 
-            // delete from MinIO storage
-            minIOService.deleteFile(file.getUploadFileName());
+            // a user's usage is seeded from their files, so it has to exist before one of them goes
+            storageUsageService.ensure(user.getEmail());
+
+            // delete from database, the loser of two concurrent deletes finds nothing left to release
+            if (fileMetaDataRepo.deleteOwned(id, user.getEmail()) == 0) {
+                throw new ResourceNotFoundException("file not found");
+            }
+            fileMetaDataCacheService.invalidate(id);
+            storageUsageService.release(user.getEmail(), file.getType(), file.getSize() == null ? 0 : file.getSize());
 
-            // delete from database
-            fileMetaDataRepo.deleteById(id);
+            // drop our reference, the MinIO object only goes once nobody else uses it
+            releaseContent(file);
+            downloadCacheService.invalidate(file.getUploadFileName());
+            thumbnailService.discard(file);
+            downloadStatsService.discard(id);
+            fileSearchService.remove(id);
 
         } catch (Exception e) {
             throw new RuntimeException("Error while deleting file: " + e.getMessage());
         }
     }
 
+    private void releaseContent(FileMetaDataDocument file) {
+        if (file.getSha256() != null) {
+            storedObjectService.release(file.getSha256());
+        } else {
+            // uploaded before content hashing, the object belongs to this file alone
+            minIOService.deleteFile(file.getUploadFileName());
+        }
+    }
+
     // change public <--> private
     public FileMetaDataDto togglePublic(String id) throws ResourceNotFoundException {
         FileMetaDataDocument file = fileMetaDataRepo.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("file not found"));
         file.setIsPublic(!file.getIsPublic());
         FileMetaDataDocument save = fileMetaDataRepo.save(file);
-        return mapper.map(save, FileMetaDataDto.class);
+        fileMetaDataCacheService.invalidate(id);
+        downloadCacheService.invalidate(file.getUploadFileName());
+        return fileMetaDataMapper.toDto(save);
     }
 
 
@@ -133,7 +549,7 @@ public class FileMetaDataService {
 
 
     public FileMetaDataDto getDownloadableFileById(String id) throws ResourceNotFoundException {
-        Optional<FileMetaDataDocument> fileOpt = fileMetaDataRepo.findById(id);
+        Optional<FileMetaDataDocument> fileOpt = fileMetaDataCacheService.findById(id);
         if (fileOpt.isEmpty()) {
             throw new ResourceNotFoundException("File not found");
         }
@@ -148,6 +564,6 @@ public class FileMetaDataService {
     }
     */
 
-        return mapper.map(file, FileMetaDataDto.class);
+        return fileMetaDataMapper.toDto(file);
     }
 }
\ No newline at end of file
@@ -0,0 +1,200 @@
+package com.cloud.share.serviceImpl;
+
+import com.cloud.share.dto.FileMetaDataDto;
+import com.cloud.share.dto.FileMetaDataMapper;
+import com.cloud.share.entity.FileMetaDataDocument;
+import com.cloud.share.entity.FileNameTerm;
+import com.cloud.share.repository.FileMetaDataRepo;
+import com.cloud.share.repository.FileNameTermRepo;
+import com.cloud.share.util.CommonUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// file name search per owner. Names are broken into words and trigrams when a file is created; a search
+// looks its terms up in file_name_term and only compares the few candidate names it finds
+@Slf4j
+@Service
+public class FileSearchService {
+
+    private static final int DEFAULT_LIMIT = 50;
+
+    private static final int MAX_LIMIT = 200;
+
+    private static final int MAX_WORD_LENGTH = 32;
+
+    // enough to narrow a long query to a handful of candidates, the name pattern checks the rest
+    private static final int MAX_QUERY_GRAMS = 6;
+
+    private static final int BACKFILL_BATCH = 500;
+
+    private static final int MIN_QUERY_LENGTH = 2;
+
+    private static final String BACKFILL_JOB = "search-backfill";
+
+    // several backfill runs, so the node holding it keeps it and a dead one is replaced within minutes
+    private static final Duration BACKFILL_LEASE = Duration.ofMinutes(5);
+
+    @Autowired
+    private FileNameTermRepo fileNameTermRepo;
+
+    @Autowired
+    private FileMetaDataRepo fileMetaDataRepo;
+
+    @Autowired
+    private FileMetaDataMapper fileMetaDataMapper;
+
+    @Autowired
+    private PresignedUrlService presignedUrlService;
+
+    @Autowired
+    private JobLeaseService jobLeaseService;
+
+    private volatile boolean backfilled;
+
+    // last file id the backfill looked at, files that failed stay behind it until a restart
+    private String backfillCursor = "";
+
+    // best effort: a file whose terms failed to save is picked up by the backfill after a restart
+    public void index(List<FileMetaDataDocument> files) {
+        try {
+            saveTerms(files);
+        } catch (Exception e) {
+            log.error("FileSearchService :: index :: " + e.getMessage());
+        }
+    }
+
+    public void remove(String fileId) {
+        fileNameTermRepo.deleteByFileId(fileId);
+    }
+
+    // token: every word of q starts a word of the name; prefix: the name starts with q; substring: q appears anywhere
+    public List<FileMetaDataDto> search(String q, String mode, Integer limit) {
+        String email = CommonUtil.getLoggedInUser().getEmail();
+        String query = normalize(q);
+        if (query.length() < MIN_QUERY_LENGTH) {
+            throw new IllegalArgumentException("q must be at least " + MIN_QUERY_LENGTH + " characters");
+        }
+        int max = limit == null ? DEFAULT_LIMIT : limit;
+        if (max < 1 || max > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        String searchMode = mode == null ? "token" : mode.toLowerCase(Locale.ROOT);
+
+        List<String> terms = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        String namePattern;
+        switch (searchMode) {
+            case "token" -> {
+                words(query).forEach(word -> prefixes.add(CommonUtil.escapeLike("w:" + word) + "%"));
+                namePattern = null;
+            }
+            case "prefix", "substring" -> {
+                List<String> grams = new ArrayList<>(grams(query));
+                if (grams.isEmpty()) {
+                    // two characters start a trigram wherever they appear, names are indexed with a trailing
+                    // space so that holds at their end too
+                    prefixes.add(CommonUtil.escapeLike("g:" + query) + "%");
+                } else {
+                    // spread over the query, so the ends are covered too
+                    int step = Math.max(1, (grams.size() + MAX_QUERY_GRAMS - 1) / MAX_QUERY_GRAMS);
+                    for (int i = 0; i < grams.size(); i += step) {
+                        terms.add(grams.get(i));
+                    }
+                    if (!terms.contains(grams.get(grams.size() - 1))) {
+                        terms.add(grams.get(grams.size() - 1));
+                    }
+                }
+                String escaped = CommonUtil.escapeLike(query);
+                namePattern = searchMode.equals("prefix") ? escaped + "%" : "%" + escaped + "%";
+            }
+            default -> throw new IllegalArgumentException("mode must be token, prefix or substring");
+        }
+
+        return fileMetaDataRepo.findRowsByTerms(email, terms, prefixes, namePattern, max).stream()
+                .map(row -> {
+                    FileMetaDataDto dto = fileMetaDataMapper.toDto(row);
+                    if (row.thumbnailObject() != null) {
+                        dto.setThumbnailUrl(presignedUrlService.getUrl(row.thumbnailObject()));
+                    }
+                    return dto;
+                })
+                .toList();
+    }
+
+    // files created before the index existed, a batch per run until none are left
+    @Scheduled(fixedDelayString = "${search.backfill-interval-ms:60000}")
+    public void backfill() {
+        // every node schedules this, one does the work
+        if (backfilled || !jobLeaseService.tryAcquire(BACKFILL_JOB, BACKFILL_LEASE)) {
+            return;
+        }
+        List<FileMetaDataDocument> files = fileMetaDataRepo.findUnindexed(backfillCursor, PageRequest.of(0, BACKFILL_BATCH));
+        if (files.isEmpty()) {
+            backfilled = true;
+            return;
+        }
+        backfillCursor = files.get(files.size() - 1).getId();
+        log.info("FileSearchService :: backfill :: indexing " + files.size() + " files");
+        // terms of an older index version go first, the new ones would collide with them
+        fileNameTermRepo.deleteByFileIdIn(files.stream().map(FileMetaDataDocument::getId).toList());
+        try {
+            saveTerms(files);
+        } catch (Exception e) {
+            // one bad name fails the whole batch, file by file the rest still gets indexed
+            log.error("FileSearchService :: backfill :: " + e.getMessage());
+            files.forEach(file -> index(List.of(file)));
+        }
+    }
+
+    private void saveTerms(List<FileMetaDataDocument> files) {
+        List<FileNameTerm> terms = new ArrayList<>();
+        for (FileMetaDataDocument file : files) {
+            for (String term : terms(file.getOriginalFileName())) {
+                terms.add(new FileNameTerm(file.getId(), term, file.getUsername()));
+            }
+        }
+        fileNameTermRepo.saveAll(terms);
+    }
+
+    static Set<String> terms(String fileName) {
+        String name = normalize(fileName);
+        Set<String> terms = new LinkedHashSet<>();
+        terms.add(FileNameTerm.INDEXED);
+        words(name).forEach(word -> terms.add("w:" + word));
+        terms.addAll(grams(name + " "));
+        return terms;
+    }
+
+    private static List<String> words(String name) {
+        return Arrays.stream(name.split("[^\\p{L}\\p{N}]+"))
+                .filter(StringUtils::hasText)
+                .map(word -> word.length() > MAX_WORD_LENGTH ? word.substring(0, MAX_WORD_LENGTH) : word)
+                .distinct()
+                .toList();
+    }
+
+    private static Set<String> grams(String name) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= name.length(); i++) {
+            grams.add("g:" + name.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    // lower case with runs of whitespace folded, the same for names and queries
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+}
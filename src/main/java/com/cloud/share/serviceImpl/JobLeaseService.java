@@ -0,0 +1,42 @@
+package com.cloud.share.serviceImpl;
+
+import com.cloud.share.entity.JobLease;
+import com.cloud.share.repository.JobLeaseRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// lets a @Scheduled job that runs on every node do its work on one of them only. The holder renews its lease
+// on each run; if it dies, another node takes over once the lease runs out
+@Slf4j
+@Service
+public class JobLeaseService {
+
+    private final String owner = UUID.randomUUID().toString();
+
+    @Autowired
+    private JobLeaseRepo jobLeaseRepo;
+
+    public boolean tryAcquire(String job, Duration duration) {
+        LocalDateTime now = LocalDateTime.now();
+        if (jobLeaseRepo.acquire(job, owner, now, now.plus(duration)) > 0) {
+            return true;
+        }
+        if (jobLeaseRepo.existsById(job)) {
+            return false;
+        }
+        try {
+            jobLeaseRepo.saveAndFlush(new JobLease(job, owner, now.plus(duration)));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // another node created the lease first, it is theirs
+            log.info("JobLeaseService :: tryAcquire :: " + job + " taken by another node");
+            return false;
+        }
+    }
+}
@@ -1,29 +1,73 @@
 package com.cloud.share.serviceImpl;
 
+import com.cloud.share.config.MultipartMinioClient;
+import com.cloud.share.config.StorageMetrics;
+import com.cloud.share.dto.StoredObjectDto;
+import com.cloud.share.util.GzipCompressingInputStream;
 import io.minio.*;
 import io.minio.http.Method;
 import io.minio.messages.Item;
+import io.minio.messages.Part;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
+@Slf4j
 @Service
 public class MinIOService {
 
+    public static final String CODEC_GZIP = "gzip";
+
+    // S3 rejects any part except the last one below 5 MiB
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    // part size doubles every this many parts so unknown lengths never hit the 10,000 part limit
+    private static final int PARTS_PER_SIZE_STEP = 1000;
+
     private final MinioClient minioClient;
-    
+
+    private final MultipartMinioClient multipartMinioClient;
+
+    private final StorageMetrics metrics;
+
     @Value("${minio.bucket-name}")
     private String bucketName;
 
-    public MinIOService(MinioClient minioClient) {
+    @Value("${minio.upload.max-part-size:64MB}")
+    private DataSize maxPartSize;
+
+    @Value("${minio.compression.enabled:false}")
+    private boolean compressionEnabled;
+
+    // content type prefixes worth gzipping, everything else (images, video, zip based office files) is stored as is
+    @Value("${minio.compression.types:text/,application/json,application/xml,application/javascript,application/x-ndjson,application/sql,image/svg+xml}")
+    private List<String> compressibleTypes;
+
+    public MinIOService(MinioClient minioClient, MultipartMinioClient multipartMinioClient, StorageMetrics metrics) {
         this.minioClient = minioClient;
+        this.multipartMinioClient = multipartMinioClient;
+        this.metrics = metrics;
     }
 
     @PostConstruct
@@ -32,6 +76,7 @@ public class MinIOService {
     }
 
     private void createBucketIfNotExists() {
+        Timer.Sample sample = metrics.start();
         try {
             boolean found = minioClient.bucketExists(BucketExistsArgs.builder()
                     .bucket(bucketName)
@@ -40,46 +85,258 @@ public class MinIOService {
                 minioClient.makeBucket(MakeBucketArgs.builder()
                         .bucket(bucketName)
                         .build());
-                System.out.println("Bucket '" + bucketName + "' created successfully.");
+                log.info("Bucket '" + bucketName + "' created successfully.");
             }
+            metrics.success(sample, "createBucket", 0);
         } catch (Exception e) {
+            metrics.failure(sample, "createBucket", e);
+            log.error("MinIOService :: createBucketIfNotExists :: " + e.getMessage());
             throw new RuntimeException("Error occurred while creating bucket: " + e.getMessage());
         }
     }
 
-    public String uploadFile(MultipartFile file) {
+    public StoredObjectDto uploadFile(MultipartFile file) {
+        if (isCompressible(file.getContentType())) {
+            // compressed length is unknown up front, so it has to take the streaming path
+            try (InputStream inputStream = file.getInputStream()) {
+                return uploadStream(inputStream, file.getOriginalFilename(), file.getContentType());
+            } catch (IOException e) {
+                throw new RuntimeException("Error occurred while uploading file: " + e.getMessage());
+            }
+        }
+
+        Timer.Sample sample = metrics.start();
         try {
             String uniqueFileName = generateUniqueFileName(file.getOriginalFilename());
-            
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
             minioClient.putObject(
                     PutObjectArgs.builder()
                             .bucket(bucketName)
                             .object(uniqueFileName)
-                            .stream(file.getInputStream(), file.getSize(), -1)
+                            .stream(new DigestInputStream(file.getInputStream(), digest), file.getSize(), -1)
                             .contentType(file.getContentType())
                             .build()
             );
-            
-            return uniqueFileName;
+
+            metrics.success(sample, "uploadFile", file.getSize());
+            return StoredObjectDto.builder()
+                    .objectName(uniqueFileName)
+                    .size(file.getSize())
+                    .sha256(HexFormat.of().formatHex(digest.digest()))
+                    .build();
         } catch (Exception e) {
+            metrics.failure(sample, "uploadFile", e);
             throw new RuntimeException("Error occurred while uploading file: " + e.getMessage());
         }
     }
 
+    // streams an upload of unknown length into MinIO, holding at most one part in memory;
+    // compressible types are gzipped on the way in and tagged with Content-Encoding
+    public StoredObjectDto uploadStream(InputStream inputStream, String originalFileName, String contentType) {
+        String uniqueFileName = generateUniqueFileName(originalFileName);
+        String objectContentType = StringUtils.hasText(contentType) ? contentType : "application/octet-stream";
+        String codec = isCompressible(objectContentType) ? CODEC_GZIP : null;
+        Map<String, String> headers = codec == null ? Map.of() : Map.of(HttpHeaders.CONTENT_ENCODING, codec);
+        String uploadId = null;
+        Timer.Sample sample = metrics.start();
+
+        try {
+            // the hash is taken over the original bytes, so dedup works the same with or without compression
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            inputStream = new DigestInputStream(inputStream, digest);
+            // closed here, not left to the caller, so the Deflater's native memory is freed on every path
+            try (GzipCompressingInputStream gzip = codec != null ? new GzipCompressingInputStream(inputStream) : null) {
+                if (gzip != null) {
+                    inputStream = gzip;
+                }
+
+                byte[] buffer = new byte[MIN_PART_SIZE];
+                int read = IOUtils.read(inputStream, buffer);
+
+                // whole file fits in the first part, no need for a multipart upload
+                if (read < buffer.length) {
+                    minioClient.putObject(
+                            PutObjectArgs.builder()
+                                    .bucket(bucketName)
+                                    .object(uniqueFileName)
+                                    .stream(new ByteArrayInputStream(buffer, 0, read), read, -1)
+                                    .contentType(objectContentType)
+                                    .headers(headers)
+                                    .build()
+                    );
+                    metrics.success(sample, "uploadStream", read);
+                    return StoredObjectDto.builder()
+                            .objectName(uniqueFileName)
+                            .size(gzip != null ? gzip.getBytesRead() : read)
+                            .sha256(HexFormat.of().formatHex(digest.digest()))
+                            .codec(codec)
+                            .build();
+                }
+
+                uploadId = multipartMinioClient.createMultipartUpload(bucketName, uniqueFileName, objectContentType, headers);
+
+                List<Part> parts = new ArrayList<>();
+                long totalSize = 0;
+                int partNumber = 1;
+                while (read > 0) {
+                    String etag = multipartMinioClient.uploadPart(bucketName, uniqueFileName, uploadId, partNumber, buffer, read);
+                    parts.add(new Part(partNumber, etag));
+                    totalSize += read;
+
+                    partNumber++;
+                    int partSize = partSize(partNumber);
+                    if (partSize > buffer.length) {
+                        buffer = new byte[partSize];
+                    }
+                    read = IOUtils.read(inputStream, buffer, 0, partSize);
+                }
+
+                multipartMinioClient.completeMultipartUpload(bucketName, uniqueFileName, uploadId, parts.toArray(new Part[0]));
+                metrics.success(sample, "uploadStream", totalSize);
+                return StoredObjectDto.builder()
+                        .objectName(uniqueFileName)
+                        .size(gzip != null ? gzip.getBytesRead() : totalSize)
+                        .sha256(HexFormat.of().formatHex(digest.digest()))
+                        .codec(codec)
+                        .build();
+            }
+        } catch (Exception e) {
+            metrics.failure(sample, "uploadStream", e);
+            if (uploadId != null) {
+                abortQuietly(uniqueFileName, uploadId);
+            }
+            throw new RuntimeException("Error occurred while streaming file: " + e.getMessage());
+        }
+    }
+
+    // small objects we generate ourselves (thumbnails), stored under a caller chosen key
+    public void uploadDerived(String objectName, byte[] data, String contentType) {
+        Timer.Sample sample = metrics.start();
+        try {
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(objectName)
+                            .stream(new ByteArrayInputStream(data), data.length, -1)
+                            .contentType(contentType)
+                            .build()
+            );
+            metrics.success(sample, "uploadDerived", data.length);
+        } catch (Exception e) {
+            metrics.failure(sample, "uploadDerived", e);
+            throw new RuntimeException("Error occurred while uploading derived object: " + e.getMessage());
+        }
+    }
+
+    private boolean isCompressible(String contentType) {
+        if (!compressionEnabled || !StringUtils.hasText(contentType)) {
+            return false;
+        }
+        String type = contentType.toLowerCase();
+        return compressibleTypes.stream().anyMatch(type::startsWith);
+    }
+
+    private int partSize(int partNumber) {
+        long size = (long) MIN_PART_SIZE << ((partNumber - 1) / PARTS_PER_SIZE_STEP);
+        long limit = Math.max(MIN_PART_SIZE, Math.min(maxPartSize.toBytes(), Integer.MAX_VALUE - 8));
+        return (int) Math.min(size, limit);
+    }
+
+    // building blocks for client driven (resumable) multipart uploads
+
+    public String createMultipartUpload(String fileName, String contentType) {
+        try {
+            return multipartMinioClient.createMultipartUpload(bucketName, fileName,
+                    StringUtils.hasText(contentType) ? contentType : "application/octet-stream", Map.of());
+        } catch (Exception e) {
+            throw new RuntimeException("Error occurred while starting multipart upload: " + e.getMessage());
+        }
+    }
+
+    public String uploadPart(String fileName, String uploadId, int partNumber, InputStream inputStream, long length) {
+        try {
+            return multipartMinioClient.uploadPart(bucketName, fileName, uploadId, partNumber, inputStream, length);
+        } catch (Exception e) {
+            throw new RuntimeException("Error occurred while uploading part " + partNumber + ": " + e.getMessage());
+        }
+    }
+
+    public List<Part> listParts(String fileName, String uploadId) {
+        try {
+            return multipartMinioClient.listParts(bucketName, fileName, uploadId);
+        } catch (Exception e) {
+            throw new RuntimeException("Error occurred while listing uploaded parts: " + e.getMessage());
+        }
+    }
+
+    public void completeMultipartUpload(String fileName, String uploadId, List<Part> parts) {
+        try {
+            multipartMinioClient.completeMultipartUpload(bucketName, fileName, uploadId, parts.toArray(new Part[0]));
+        } catch (Exception e) {
+            throw new RuntimeException("Error occurred while completing multipart upload: " + e.getMessage());
+        }
+    }
+
+    public void abortMultipartUpload(String fileName, String uploadId) {
+        try {
+            multipartMinioClient.abortMultipartUpload(bucketName, fileName, uploadId);
+        } catch (Exception e) {
+            throw new RuntimeException("Error occurred while aborting multipart upload: " + e.getMessage());
+        }
+    }
+
+    private void abortQuietly(String fileName, String uploadId) {
+        try {
+            multipartMinioClient.abortMultipartUpload(bucketName, fileName, uploadId);
+        } catch (Exception ignored) {
+            // nothing more we can do, MinIO lifecycle rules clean up stale uploads
+        }
+    }
+
+    // turns the stored bytes back into the original content for clients that can't take the encoded form
+    public InputStream decode(InputStream inputStream, String codec) {
+        if (!CODEC_GZIP.equals(codec)) {
+            return inputStream;
+        }
+        try {
+            return new GZIPInputStream(inputStream, 64 * 1024);
+        } catch (IOException e) {
+            throw new RuntimeException("Error occurred while decoding file: " + e.getMessage());
+        }
+    }
+
     public InputStream downloadFile(String fileName) {
+        return downloadFile(fileName, null, null);
+    }
+
+    // ranged GET, MinIO only sends length bytes starting at offset
+    public InputStream downloadFile(String fileName, long offset, long length) {
+        return downloadFile(fileName, Long.valueOf(offset), Long.valueOf(length));
+    }
+
+    // the timer covers getting the response headers back, bytes are counted while the caller streams
+    private InputStream downloadFile(String fileName, Long offset, Long length) {
+        Timer.Sample sample = metrics.start();
         try {
-            return minioClient.getObject(
+            InputStream inputStream = minioClient.getObject(
                     GetObjectArgs.builder()
                             .bucket(bucketName)
                             .object(fileName)
+                            .offset(offset)
+                            .length(length)
                             .build()
             );
+            metrics.success(sample, "downloadFile", 0);
+            return metrics.track(inputStream, "downloadFile");
         } catch (Exception e) {
+            metrics.failure(sample, "downloadFile", e);
             throw new RuntimeException("Error occurred while downloading file: " + e.getMessage());
         }
     }
 
     public void deleteFile(String fileName) {
+        Timer.Sample sample = metrics.start();
         try {
             minioClient.removeObject(
                     RemoveObjectArgs.builder()
@@ -87,27 +344,61 @@ public class MinIOService {
                             .object(fileName)
                             .build()
             );
+            metrics.success(sample, "deleteFile", 0);
         } catch (Exception e) {
+            metrics.failure(sample, "deleteFile", e);
             throw new RuntimeException("Error occurred while deleting file: " + e.getMessage());
         }
     }
 
-    public String getFileUrl(String fileName) {
+    // presigned GET; with a downloadName MinIO answers with a matching Content-Disposition
+    public String getFileUrl(String fileName, Duration expiry, String downloadName) {
+        Timer.Sample sample = metrics.start();
         try {
-            return minioClient.getPresignedObjectUrl(
+            Map<String, String> queryParams = new HashMap<>();
+            if (downloadName != null) {
+                queryParams.put("response-content-disposition", "attachment; filename=\"" + downloadName + "\"");
+            }
+            String url = minioClient.getPresignedObjectUrl(
                     GetPresignedObjectUrlArgs.builder()
                             .method(Method.GET)
                             .bucket(bucketName)
                             .object(fileName)
-                            .expiry(60 * 60 * 24) // 24 hours
+                            .extraQueryParams(queryParams)
+                            .expiry((int) expiry.toSeconds())
                             .build()
             );
+            metrics.success(sample, "getFileUrl", 0);
+            return url;
         } catch (Exception e) {
+            metrics.failure(sample, "getFileUrl", e);
             throw new RuntimeException("Error occurred while generating file URL: " + e.getMessage());
         }
     }
 
-    private String generateUniqueFileName(String originalFileName) {
+    // presigned PUT for a whole object (uploadId == null) or for one part of a multipart upload
+    public String getUploadUrl(String fileName, String uploadId, Integer partNumber, Duration expiry) {
+        try {
+            Map<String, String> queryParams = new HashMap<>();
+            if (uploadId != null) {
+                queryParams.put("uploadId", uploadId);
+                queryParams.put("partNumber", String.valueOf(partNumber));
+            }
+            return minioClient.getPresignedObjectUrl(
+                    GetPresignedObjectUrlArgs.builder()
+                            .method(Method.PUT)
+                            .bucket(bucketName)
+                            .object(fileName)
+                            .extraQueryParams(queryParams)
+                            .expiry((int) expiry.toSeconds())
+                            .build()
+            );
+        } catch (Exception e) {
+            throw new RuntimeException("Error occurred while generating upload URL: " + e.getMessage());
+        }
+    }
+
+    public String generateUniqueFileName(String originalFileName) {
         String extension = "";
         if (originalFileName != null && originalFileName.contains(".")) {
             extension = "." + StringUtils.getFilenameExtension(originalFileName);
@@ -116,14 +407,18 @@ public class MinIOService {
     }
 
     public StatObjectResponse getFileInfo(String fileName) {
+        Timer.Sample sample = metrics.start();
         try {
-            return minioClient.statObject(
+            StatObjectResponse stat = minioClient.statObject(
                     StatObjectArgs.builder()
                             .bucket(bucketName)
                             .object(fileName)
                             .build()
             );
+            metrics.success(sample, "getFileInfo", 0);
+            return stat;
         } catch (Exception e) {
+            metrics.failure(sample, "getFileInfo", e);
             throw new RuntimeException("Error occurred while getting file info: " + e.getMessage());
         }
     }
@@ -15,6 +15,7 @@ import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
@@ -32,6 +33,9 @@ public class PaymentService {
     @Autowired
     private PaymentTransactionRepo paymentTransactionRepo;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Value("{razor.key.id}")
         private String razorpayKeyId;
 
@@ -54,6 +58,8 @@ public class PaymentService {
                Order order = razorpayClient.orders.create(orderRequest);
 
                String orderId = order.get("id");
+               // as Razorpay recorded it, the amount the payment is checked against
+               Integer amount = order.get("amount");
 
 
                // create pending transaction record
@@ -61,6 +67,7 @@ public class PaymentService {
                         .username(username)
                         .orderId(orderId)
                         .planId(paymentDto.getPlanId())
+                        .amount(amount)
                         .currency(paymentDto.getCurrency())
                         .status("PENDING")
                         .transactionDate(LocalDateTime.now())
@@ -85,16 +92,39 @@ public class PaymentService {
     }
 
 
+    // safe to retry: a failed or broken attempt leaves the order open, and the move to SUCCESS commits
+    // together with its credits, only once
     public PaymentDto verifyPayment(PaymentVerificationDto request){
 
         try{
             String username = CommonUtil.getLoggedInUser().getEmail();
+            String orderId = request.getRazorpay_order_id();
+
+            PaymentTransaction transaction = paymentTransactionRepo.findByOrderId(orderId)
+                    .filter(t -> username.equals(t.getUsername()))
+                    .orElse(null);
+            if(transaction == null){
+                return PaymentDto.builder()
+                        .success(false)
+                        .message("Order not found")
+                        .build();
+            }
+            if("SUCCESS".equals(transaction.getStatus())){
+                return alreadyVerified();
+            }
+            // the plan was fixed when the order was created and priced, a different one can't be claimed now
+            if(request.getPlanId() != null && !request.getPlanId().equals(transaction.getPlanId())){
+                return PaymentDto.builder()
+                        .success(false)
+                        .message("Plan does not match the order")
+                        .build();
+            }
 
-          String data =  request.getRazorpay_order_id()+"|"+request.getRazorpay_payment_id();
+          String data =  orderId+"|"+request.getRazorpay_payment_id();
 
          String generatedSignature = generateHmacSha256Signature(data,razorpayKeySecret);
          if(!generatedSignature.equals(request.getRazorpay_signature())){
-            updateTransactionStatus(request.getRazorpay_order_id(),"FAILED",request.getRazorpay_payment_id(),null);
+            paymentTransactionRepo.updateUnlessSucceeded(orderId,"FAILED",request.getRazorpay_payment_id(),0);
             return PaymentDto.builder()
                     .success(false)
                     .message("Payment verification failed")
@@ -105,7 +135,7 @@ public class PaymentService {
             int creditToAdd =0;
          String plan ="BASIC";
 
-         switch (request.getPlanId()){
+         switch (String.valueOf(transaction.getPlanId())){
              case "premium":
                  creditToAdd =500;
                  plan = "PREMIUM";
@@ -118,15 +148,26 @@ public class PaymentService {
 
          // add credit
          if(creditToAdd>0){
-             userCreditsService.addCredits(username,creditToAdd,plan);
-             updateTransactionStatus(request.getRazorpay_order_id(),"SUCCESS",request.getRazorpay_payment_id(),creditToAdd);
+             int credits = creditToAdd;
+             String newPlan = plan;
+             // a concurrent retry may have claimed the order first, then nothing is added here
+             Boolean claimed = transactionTemplate.execute(status -> {
+                 if(paymentTransactionRepo.updateUnlessSucceeded(orderId,"SUCCESS",request.getRazorpay_payment_id(),credits) == 0){
+                     return false;
+                 }
+                 userCreditsService.addCredits(username,credits,newPlan,orderId);
+                 return true;
+             });
+             if(!Boolean.TRUE.equals(claimed)){
+                 return alreadyVerified();
+             }
              return PaymentDto.builder()
                      .success(true)
                      .message("Payment Verified successfully")
                      .credits(userCreditsService.getUserCredit().getCredits())
                      .build();
          }else{
-             updateTransactionStatus(request.getRazorpay_order_id(),"FAILED",request.getRazorpay_payment_id(),null);
+             paymentTransactionRepo.updateUnlessSucceeded(orderId,"FAILED",request.getRazorpay_payment_id(),0);
              return  PaymentDto.builder()
                      .success(false)
                      .message("Invalid Plan selected")
@@ -135,7 +176,8 @@ public class PaymentService {
 
         } catch (Exception e) {
             try{
-                updateTransactionStatus(request.getRazorpay_order_id(),"ERROR",request.getRazorpay_payment_id(),null);
+                // recorded, not final: whatever failed (a rolled back addCredits too) can be verified again
+                paymentTransactionRepo.updateUnlessSucceeded(request.getRazorpay_order_id(),"ERROR",request.getRazorpay_payment_id(),0);
             } catch (Exception ex) {
                 throw new RuntimeException(ex);
             }
@@ -147,21 +189,18 @@ public class PaymentService {
 
     }
 
-    private void updateTransactionStatus(String razorpayOrderId, String status, String razorpayPaymentId, Integer creditsTOAdd) {
-        paymentTransactionRepo.findAll().stream()
-                .filter(t -> t.getOrderId()!=null && t.getOrderId().equals(razorpayOrderId))
-                .findFirst().map(transaction ->{
-                    transaction.setStatus(status);
-                    transaction.setPaymentId(razorpayPaymentId);
-                    if(creditsTOAdd != null){
-                        transaction.setCreditAdded(creditsTOAdd);
-                    }
-                    return paymentTransactionRepo.save(transaction);
-                }).orElse(null);
+    // the answer a retry gets once the order went through
+    private PaymentDto alreadyVerified() {
+        return PaymentDto.builder()
+                .success(true)
+                .message("Payment already verified")
+                .credits(userCreditsService.getUserCredit().getCredits())
+                .build();
     }
 
 
-    private String generateHmacSha256Signature(String data, String secret)
+    // package-private so the benchmarks can reach it
+    static String generateHmacSha256Signature(String data, String secret)
             throws Exception {
         SecretKeySpec secretKey = new SecretKeySpec(secret.getBytes("UTF-8"), "HmacSHA256");
         Mac mac = Mac.getInstance("HmacSHA256");
@@ -0,0 +1,78 @@
+package com.cloud.share.serviceImpl;
+
+import com.cloud.share.dto.FileMetaDataDto;
+import com.cloud.share.dto.PresignedUrlDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// presigned GET urls are reused until they get close to expiry instead of being signed on every request
+@Service
+public class PresignedUrlService {
+
+    @Value("${download.url-expiry:1h}")
+    private Duration urlExpiry;
+
+    // a cached url is handed out only while it still has at least this long to live
+    @Value("${download.url-refresh-margin:10m}")
+    private Duration refreshMargin;
+
+    @Value("${download.url-cache-size:10000}")
+    private long cacheSize;
+
+    @Autowired
+    private MinIOService minIOService;
+
+    private Cache<String, PresignedUrl> cache;
+
+    @PostConstruct
+    public void init() {
+        if (refreshMargin.compareTo(urlExpiry) >= 0) {
+            throw new IllegalArgumentException("download.url-refresh-margin must be shorter than download.url-expiry");
+        }
+        cache = Caffeine.newBuilder()
+                .expireAfterWrite(urlExpiry.minus(refreshMargin))
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    public PresignedUrlDto getDownloadUrl(FileMetaDataDto file) {
+        // the url carries the download name, so files sharing one object still get their own
+        PresignedUrl presigned = presign(file.getUploadFileName(), file.getOriginalFileName());
+
+        return PresignedUrlDto.builder()
+                .id(file.getId())
+                .fileName(file.getOriginalFileName())
+                .url(presigned.url())
+                .expiresAt(presigned.expiresAt())
+                .build();
+    }
+
+    // url for inline use (img tags), no download name attached
+    public String getUrl(String objectName) {
+        return presign(objectName, null).url();
+    }
+
+    private PresignedUrl presign(String objectName, String downloadName) {
+        String key = objectName + "|" + downloadName;
+        // not cache.get(key, loader): that signs inside a map bin lock, and the first signature may look up
+        // the bucket region over the network; signing the same key twice now and then is harmless
+        PresignedUrl presigned = cache.getIfPresent(key);
+        if (presigned == null) {
+            presigned = new PresignedUrl(
+                    minIOService.getFileUrl(objectName, urlExpiry, downloadName),
+                    LocalDateTime.now().plus(urlExpiry));
+            cache.put(key, presigned);
+        }
+        return presigned;
+    }
+
+    private record PresignedUrl(String url, LocalDateTime expiresAt) {
+    }
+}
@@ -0,0 +1,201 @@
+package com.cloud.share.serviceImpl;
+
+import com.cloud.share.dto.StorageUsageDto;
+import com.cloud.share.entity.StorageUsage;
+import com.cloud.share.entity.StorageUsageByType;
+import com.cloud.share.repository.FileMetaDataRepo;
+import com.cloud.share.repository.StorageUsageByTypeRepo;
+import com.cloud.share.repository.StorageUsageRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// per user bytes and file counts, kept current by every upload and delete instead of summed on request.
+// A user's rows are seeded once from their existing files, after that only conditional UPDATEs move them.
+@Slf4j
+@Service
+public class StorageUsageService {
+
+    public static final List<String> CATEGORIES = List.of("image", "video", "audio", "document", "archive", "other");
+
+    @Value("${storage.quota.basic:2GB}")
+    private DataSize quotaBasic;
+
+    @Value("${storage.quota.premium:50GB}")
+    private DataSize quotaPremium;
+
+    // 0 means no byte limit
+    @Value("${storage.quota.ultimate:0}")
+    private DataSize quotaUltimate;
+
+    @Autowired
+    private StorageUsageRepo storageUsageRepo;
+
+    @Autowired
+    private StorageUsageByTypeRepo storageUsageByTypeRepo;
+
+    @Autowired
+    private FileMetaDataRepo fileMetaDataRepo;
+
+    @Autowired
+    private UserCreditsService userCreditsService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // one file to be counted, by its content type and original size
+    public record Item(String contentType, long size) {
+    }
+
+    // adds the files if they fit the plan's quota, false (and nothing added) otherwise
+    public boolean reserve(String email, List<Item> items) {
+        // seeding may lose a race and fail, so it runs before (not inside) the update transaction
+        ensure(email);
+        long quota = quota(email);
+        long bytes = items.stream().mapToLong(Item::size).sum();
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (storageUsageRepo.reserve(email, bytes, items.size(), quota) == 0) {
+                return false;
+            }
+            byCategory(items).forEach((category, total) ->
+                    storageUsageByTypeRepo.add(email, category, total[0], total[1]));
+            return true;
+        }));
+    }
+
+    public boolean reserve(String email, String contentType, long size) {
+        return reserve(email, List.of(new Item(contentType, size)));
+    }
+
+    // files deleted, or reserved for an upload that never turned into a file
+    public void release(String email, List<Item> items) {
+        long bytes = items.stream().mapToLong(Item::size).sum();
+        transactionTemplate.executeWithoutResult(status -> {
+            storageUsageRepo.release(email, bytes, items.size());
+            byCategory(items).forEach((category, total) ->
+                    storageUsageByTypeRepo.add(email, category, -total[0], -total[1]));
+        });
+    }
+
+    public void release(String email, String contentType, long size) {
+        release(email, List.of(new Item(contentType, size)));
+    }
+
+    // early answer for uploads that announce their size; the reservation at completion is what counts
+    public boolean hasRoomFor(String email, long size) {
+        ensure(email);
+        long quota = quota(email);
+        return storageUsageRepo.findById(email)
+                .map(usage -> usage.getTotalBytes() + size <= quota)
+                .orElse(true);
+    }
+
+    public StorageUsageDto getUsage(String email) {
+        ensure(email);
+        StorageUsage usage = storageUsageRepo.findById(email).orElseThrow();
+
+        Map<String, StorageUsageDto.CategoryDto> byType = new LinkedHashMap<>();
+        CATEGORIES.forEach(category -> byType.put(category, new StorageUsageDto.CategoryDto(0, 0)));
+        for (StorageUsageByType row : storageUsageByTypeRepo.findByUsername(email)) {
+            byType.put(row.getCategory(), new StorageUsageDto.CategoryDto(row.getTotalBytes(), row.getFileCount()));
+        }
+
+        long quota = quota(email);
+        return StorageUsageDto.builder()
+                .totalBytes(usage.getTotalBytes())
+                .fileCount(usage.getFileCount())
+                .quotaBytes(quota == Long.MAX_VALUE ? null : quota)
+                .byType(byType)
+                .build();
+    }
+
+    // must run before a file of a user without usage rows is deleted, or the seed would miss it
+    public void ensure(String email) {
+        if (storageUsageRepo.existsById(email)) {
+            return;
+        }
+        try {
+            // the total and every category row in one transaction, so nobody sees half a seed
+            transactionTemplate.executeWithoutResult(status -> seed(email));
+        } catch (DataIntegrityViolationException e) {
+            // another request seeded the same user first (the rows are insert only, so this can't merge over
+            // them), its rows are committed by now
+            log.info("StorageUsageService :: ensure :: already seeded " + email);
+        }
+    }
+
+    private void seed(String email) {
+        Map<String, long[]> totals = new LinkedHashMap<>();
+        CATEGORIES.forEach(category -> totals.put(category, new long[2]));
+        for (Object[] row : fileMetaDataRepo.summarizeByType(email)) {
+            long[] total = totals.get(category((String) row[0]));
+            total[0] += ((Number) row[2]).longValue();
+            total[1] += ((Number) row[1]).longValue();
+        }
+
+        List<StorageUsageByType> rows = new ArrayList<>();
+        totals.forEach((category, total) -> rows.add(new StorageUsageByType(email, category, total[0], total[1])));
+        storageUsageRepo.saveAndFlush(StorageUsage.builder()
+                .username(email)
+                .totalBytes(rows.stream().mapToLong(StorageUsageByType::getTotalBytes).sum())
+                .fileCount(rows.stream().mapToLong(StorageUsageByType::getFileCount).sum())
+                .build());
+        storageUsageByTypeRepo.saveAllAndFlush(rows);
+    }
+
+    private long quota(String email) {
+        DataSize quota = switch (userCreditsService.getUserCredit(email).getPlan()) {
+            case "ULTIMATE" -> quotaUltimate;
+            case "PREMIUM" -> quotaPremium;
+            default -> quotaBasic;
+        };
+        return quota.toBytes() <= 0 ? Long.MAX_VALUE : quota.toBytes();
+    }
+
+    // bytes and files per category touched, one update each instead of one per file
+    private Map<String, long[]> byCategory(List<Item> items) {
+        Map<String, long[]> grouped = new LinkedHashMap<>();
+        for (Item item : items) {
+            long[] total = grouped.computeIfAbsent(category(item.contentType()), c -> new long[2]);
+            total[0] += item.size();
+            total[1]++;
+        }
+        return grouped;
+    }
+
+    static String category(String contentType) {
+        if (contentType == null) {
+            return "other";
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        if (type.startsWith("image/")) {
+            return "image";
+        }
+        if (type.startsWith("video/")) {
+            return "video";
+        }
+        if (type.startsWith("audio/")) {
+            return "audio";
+        }
+        if (type.contains("zip") || type.contains("x-tar") || type.contains("x-rar") || type.contains("x-7z")
+                || type.contains("x-xz") || type.contains("compressed")) {
+            return "archive";
+        }
+        if (type.startsWith("text/") || type.equals("application/pdf") || type.equals("application/json")
+                || type.equals("application/rtf") || type.equals("application/msword") || type.contains("officedocument")
+                || type.contains("ms-excel") || type.contains("ms-powerpoint") || type.contains("opendocument")) {
+            return "document";
+        }
+        return "other";
+    }
+}
@@ -0,0 +1,89 @@
+package com.cloud.share.serviceImpl;
+
+import com.cloud.share.dto.StoredObjectDto;
+import com.cloud.share.entity.StoredObject;
+import com.cloud.share.repository.StoredObjectRepo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+// reference counted, content addressed objects: identical bytes are kept once in MinIO
+@Slf4j
+@Service
+public class StoredObjectService {
+
+    @Autowired
+    private StoredObjectRepo storedObjectRepo;
+
+    @Autowired
+    private MinIOService minIOService;
+
+    // called after the bytes landed in MinIO, returns the object the file should point at
+    public StoredObjectDto register(StoredObjectDto uploaded) {
+        if (uploaded.getSha256() == null) {
+            return uploaded;
+        }
+
+        Optional<StoredObjectDto> existing = claim(uploaded.getSha256(), uploaded.getSize());
+        if (existing.isEmpty()) {
+            try {
+                storedObjectRepo.saveAndFlush(StoredObject.builder()
+                        .sha256(uploaded.getSha256())
+                        .objectName(uploaded.getObjectName())
+                        .size(uploaded.getSize())
+                        .codec(uploaded.getCodec())
+                        .refCount(1L)
+                        .createdAt(LocalDateTime.now())
+                        .build());
+                return uploaded;
+            } catch (DataIntegrityViolationException e) {
+                // a concurrent upload of the same content won the insert
+                existing = claim(uploaded.getSha256(), uploaded.getSize());
+                if (existing.isEmpty()) {
+                    throw new RuntimeException("Error occurred while registering file content: " + e.getMessage());
+                }
+            }
+        }
+
+        // same content is already stored, drop the copy we just wrote
+        minIOService.deleteFile(uploaded.getObjectName());
+        return existing.get();
+    }
+
+    // takes a reference on already stored content, empty if we don't have it (or the size disagrees)
+    public Optional<StoredObjectDto> claim(String sha256, Long size) {
+        Optional<StoredObject> stored = storedObjectRepo.findById(sha256);
+        if (stored.isEmpty() || (size != null && !size.equals(stored.get().getSize()))) {
+            return Optional.empty();
+        }
+        // the row may have been released between the read and the update
+        if (storedObjectRepo.incrementRefCount(sha256) == 0) {
+            return Optional.empty();
+        }
+        StoredObject object = stored.get();
+        return Optional.of(StoredObjectDto.builder()
+                .objectName(object.getObjectName())
+                .size(object.getSize())
+                .sha256(object.getSha256())
+                .codec(object.getCodec())
+                .build());
+    }
+
+    // drops one reference, the MinIO object goes with the last one
+    public void release(String sha256) {
+        Optional<StoredObject> stored = storedObjectRepo.findById(sha256);
+        if (stored.isEmpty()) {
+            log.error("StoredObjectService :: release :: unknown content " + sha256);
+            return;
+        }
+
+        storedObjectRepo.decrementRefCount(sha256);
+        if (storedObjectRepo.deleteIfUnreferenced(sha256) == 1) {
+            minIOService.deleteFile(stored.get().getObjectName());
+        }
+    }
+}
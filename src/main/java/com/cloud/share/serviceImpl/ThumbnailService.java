@@ -0,0 +1,240 @@
+package com.cloud.share.serviceImpl;
+
+import com.cloud.share.entity.FileMetaDataDocument;
+import com.cloud.share.entity.ThumbnailTask;
+import com.cloud.share.repository.FileMetaDataRepo;
+import com.cloud.share.repository.ThumbnailTaskRepo;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+// uploads only queue a row; a poller on every node claims rows and renders them on a bounded pool,
+// the result is a small JPEG next to the original in MinIO
+@Slf4j
+@Service
+public class ThumbnailService {
+
+    @Value("${thumbnail.enabled:true}")
+    private boolean enabled;
+
+    @Value("${thumbnail.types:image/jpeg,image/png,image/gif,image/bmp}")
+    private List<String> types;
+
+    // longest side of the generated thumbnail, in pixels
+    @Value("${thumbnail.size:256}")
+    private int size;
+
+    @Value("${thumbnail.max-source-size:25MB}")
+    private DataSize maxSourceSize;
+
+    @Value("${thumbnail.max-attempts:3}")
+    private int maxAttempts;
+
+    // a task claimed longer ago than this belongs to a node that died, it gets handed out again
+    @Value("${thumbnail.stale-after:10m}")
+    private Duration staleAfter;
+
+    // tasks claimed per poll; the executor's own queue is thumbnail.queue-capacity
+    @Value("${thumbnail.batch-size:20}")
+    private int batchSize;
+
+    @Autowired
+    private ThumbnailTaskRepo thumbnailTaskRepo;
+
+    @Autowired
+    private FileMetaDataRepo fileMetaDataRepo;
+
+    @Autowired
+    private MinIOService minIOService;
+
+    @Autowired
+    private FileMetaDataCacheService fileMetaDataCacheService;
+
+    @Autowired
+    @Qualifier("thumbnailExecutor")
+    private ThreadPoolTaskExecutor thumbnailExecutor;
+
+    @PostConstruct
+    public void init() {
+        // decode in memory, not through temp files
+        ImageIO.setUseCache(false);
+    }
+
+    // best effort: runs after the file rows are committed, so a failure here must not undo the upload;
+    // the file just stays without a thumbnail
+    public void enqueue(List<FileMetaDataDocument> files) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<ThumbnailTask> tasks = files.stream()
+                    .filter(file -> isImage(file.getType()))
+                    .map(file -> ThumbnailTask.builder()
+                            .fileId(file.getId())
+                            .status("PENDING")
+                            .attempts(0)
+                            .createdAt(now)
+                            .updatedAt(now)
+                            .build())
+                    .toList();
+            if (!tasks.isEmpty()) {
+                thumbnailTaskRepo.saveAll(tasks);
+            }
+        } catch (Exception e) {
+            log.error("ThumbnailService :: enqueue :: " + e.getMessage());
+        }
+    }
+
+    // the file is gone: drop its queued task and its thumbnail
+    public void discard(FileMetaDataDocument file) {
+        if (thumbnailTaskRepo.existsById(file.getId())) {
+            thumbnailTaskRepo.deleteById(file.getId());
+        }
+        if (file.getThumbnailObject() != null) {
+            minIOService.deleteFile(file.getThumbnailObject());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${thumbnail.poll-interval-ms:2000}")
+    public void dispatch() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        thumbnailTaskRepo.requeueStale(now.minus(staleAfter), now);
+
+        List<ThumbnailTask> pending = thumbnailTaskRepo.findByStatusOrderByCreatedAtAsc("PENDING", PageRequest.of(0, batchSize));
+        for (ThumbnailTask task : pending) {
+            if (thumbnailTaskRepo.transitionStatus(task.getFileId(), "PENDING", "PROCESSING", now) == 0) {
+                continue;  // another node took it
+            }
+            try {
+                thumbnailExecutor.execute(() -> generate(task.getFileId()));
+            } catch (TaskRejectedException e) {
+                // pool is full, the row waits for the next round
+                thumbnailTaskRepo.transitionStatus(task.getFileId(), "PROCESSING", "PENDING", now);
+                break;
+            }
+        }
+    }
+
+    private void generate(String fileId) {
+        try {
+            Optional<FileMetaDataDocument> file = fileMetaDataRepo.findById(fileId);
+            if (file.isEmpty()) {
+                thumbnailTaskRepo.deleteById(fileId);
+                return;
+            }
+
+            String objectName = "thumbnails/" + fileId + ".jpg";
+            minIOService.uploadDerived(objectName, render(file.get()), "image/jpeg");
+            if (fileMetaDataRepo.setThumbnail(fileId, objectName) == 0) {
+                // deleted while we were rendering
+                minIOService.deleteFile(objectName);
+            } else {
+                fileMetaDataCacheService.invalidate(fileId);
+            }
+            thumbnailTaskRepo.deleteById(fileId);
+        } catch (Exception e) {
+            log.error("ThumbnailService :: generate :: " + fileId + " :: " + e.getMessage());
+            thumbnailTaskRepo.findById(fileId).ifPresent(task -> {
+                task.setAttempts(task.getAttempts() + 1);
+                task.setStatus(task.getAttempts() >= maxAttempts ? "FAILED" : "PENDING");
+                task.setUpdatedAt(LocalDateTime.now());
+                thumbnailTaskRepo.save(task);
+            });
+        }
+    }
+
+    private byte[] render(FileMetaDataDocument file) throws IOException {
+        long limit = maxSourceSize.toBytes();
+        if (file.getSize() != null && file.getSize() > limit) {
+            throw new IllegalArgumentException("Image too large for a thumbnail");
+        }
+
+        byte[] source;
+        try (InputStream inputStream = minIOService.decode(minIOService.downloadFile(file.getUploadFileName()), file.getCodec())) {
+            source = inputStream.readNBytes((int) Math.min(limit, Integer.MAX_VALUE - 8));
+        }
+
+        try (ImageInputStream imageInput = ImageIO.createImageInputStream(new ByteArrayInputStream(source))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                // decode only every n-th pixel, a 40MP photo is never materialised at full size
+                int step = Math.max(1, Math.max(width, height) / (2 * size));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return toJpeg(scale(reader.read(0, param)));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage image) {
+        double ratio = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            // JPEG has no alpha, transparent areas become white
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return thumbnail;
+    }
+
+    private byte[] toJpeg(BufferedImage image) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, "jpg", outputStream)) {
+            throw new IOException("No JPEG writer available");
+        }
+        return outputStream.toByteArray();
+    }
+
+    private boolean isImage(String type) {
+        return StringUtils.hasText(type) && types.contains(type.toLowerCase());
+    }
+}
@@ -0,0 +1,445 @@
+package com.cloud.share.serviceImpl;
+
+import com.cloud.share.dto.FileMetaDataDto;
+import com.cloud.share.dto.FileMetaDataMapper;
+import com.cloud.share.dto.PresignedUploadDto;
+import com.cloud.share.dto.StoredObjectDto;
+import com.cloud.share.dto.UploadSessionDto;
+import com.cloud.share.dto.UploadSessionRequest;
+import com.cloud.share.entity.FileMetaDataDocument;
+import com.cloud.share.entity.UploadSession;
+import com.cloud.share.entity.User;
+import com.cloud.share.exception.ResourceNotFoundException;
+import com.cloud.share.exception.SuccessException;
+import com.cloud.share.repository.FileMetaDataRepo;
+import com.cloud.share.repository.UploadSessionRepo;
+import com.cloud.share.util.CommonUtil;
+import io.minio.StatObjectResponse;
+import io.minio.messages.Part;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// resumable and direct (presigned) uploads: session rows live in MySQL so every node sees them and
+// they survive restarts, the uploaded parts themselves are tracked by MinIO under the multipart upload id
+@Slf4j
+@Service
+public class UploadSessionService {
+
+    private static final int MAX_PART_NUMBER = 10000;
+
+    @Autowired
+    private UploadSessionRepo uploadSessionRepo;
+
+    @Autowired
+    private MinIOService minIOService;
+
+    @Autowired
+    private FileMetaDataService fileMetaDataService;
+
+    @Autowired
+    private FileMetaDataRepo fileMetaDataRepo;
+
+    @Autowired
+    private UserCreditsService userCreditsService;
+
+    @Autowired
+    private StorageUsageService storageUsageService;
+
+    @Autowired
+    private FileMetaDataMapper fileMetaDataMapper;
+
+    @Value("${upload.session.expiry:24h}")
+    private Duration sessionExpiry;
+
+    @Value("${upload.direct.url-expiry:1h}")
+    private Duration directUrlExpiry;
+
+    @Value("${upload.direct.multipart-threshold:64MB}")
+    private DataSize multipartThreshold;
+
+    @Value("${upload.direct.max-file-size:5GB}")
+    private DataSize maxDirectFileSize;
+
+    // far longer than completing and recording an upload ever takes
+    @Value("${upload.session.completing-timeout:1h}")
+    private Duration completingTimeout;
+
+    public UploadSessionDto initSession(UploadSessionRequest request) {
+        User user = CommonUtil.getLoggedInUser();
+
+        if (!StringUtils.hasText(request.getFileName())) {
+            throw new IllegalArgumentException("fileName is required");
+        }
+        // announced sizes are checked up front, so nobody uploads gigabytes only to be turned away at the end
+        if (request.getSize() != null && !storageUsageService.hasRoomFor(user.getEmail(), request.getSize())) {
+            throw new SuccessException("Storage quota exceeded. Please upgrade your plan");
+        }
+        String objectName = minIOService.generateUniqueFileName(request.getFileName());
+
+        // the credit is held for the session's lifetime and handed back on abort or expiry
+        if (!userCreditsService.reserveCredits(1, objectName)) {
+            throw new SuccessException("Not enough credits . Please purchase your credit first");
+        }
+
+        String uploadId;
+        try {
+            uploadId = minIOService.createMultipartUpload(objectName, request.getContentType());
+        } catch (RuntimeException e) {
+            userCreditsService.releaseCredits(user.getEmail(), 1, objectName);
+            throw e;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        UploadSession session = UploadSession.builder()
+                .username(user.getEmail())
+                .mode("CHUNKED")
+                .uploadId(uploadId)
+                .objectName(objectName)
+                .originalFileName(request.getFileName())
+                .type(request.getContentType())
+                .size(request.getSize())
+                .status("ACTIVE")
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+
+        return toDto(uploadSessionRepo.save(session), List.of());
+    }
+
+    public UploadSessionDto getSession(String id) throws ResourceNotFoundException {
+        UploadSession session = findOwnSession(id);
+        List<Part> parts = "ACTIVE".equals(session.getStatus()) && session.getUploadId() != null
+                ? minIOService.listParts(session.getObjectName(), session.getUploadId())
+                : List.of();
+        return toDto(session, parts);
+    }
+
+    public UploadSessionDto.PartDto uploadChunk(String id, int partNumber, InputStream inputStream, long length) throws ResourceNotFoundException {
+        UploadSession session = findOwnSession(id);
+        requireActive(session);
+        requireMode(session, "CHUNKED");
+
+        if (partNumber < 1 || partNumber > MAX_PART_NUMBER) {
+            throw new IllegalArgumentException("part number must be between 1 and " + MAX_PART_NUMBER);
+        }
+        if (length <= 0) {
+            throw new IllegalArgumentException("Content-Length is required for chunk uploads");
+        }
+
+        // re-sending a part number simply replaces it in MinIO, which is what makes retries safe
+        String etag = minIOService.uploadPart(session.getObjectName(), session.getUploadId(), partNumber, inputStream, length);
+        uploadSessionRepo.touch(id, LocalDateTime.now());
+
+        return UploadSessionDto.PartDto.builder()
+                .partNumber(partNumber)
+                .size(length)
+                .etag(etag)
+                .build();
+    }
+
+    public FileMetaDataDto completeSession(String id) throws ResourceNotFoundException {
+        User user = CommonUtil.getLoggedInUser();
+        UploadSession session = findOwnSession(id);
+        requireMode(session, "CHUNKED");
+
+        if (uploadSessionRepo.transitionStatus(id, "ACTIVE", "COMPLETING", LocalDateTime.now()) == 0) {
+            throw new IllegalArgumentException("Upload session is not active");
+        }
+
+        long size;
+        try {
+            size = completeMultipart(session);
+        } catch (RuntimeException e) {
+            // let the client fix the missing chunks and try again
+            uploadSessionRepo.transitionStatus(id, "COMPLETING", "ACTIVE", LocalDateTime.now());
+            throw e;
+        }
+
+        StoredObjectDto stored = StoredObjectDto.builder()
+                .objectName(session.getObjectName())
+                .size(size)
+                .build();
+
+        // metadata row only exists once the object is complete
+        FileMetaDataDocument file = recordUpload(user, session, stored);
+        uploadSessionRepo.transitionStatus(id, "COMPLETING", "COMPLETED", LocalDateTime.now());
+
+        return fileMetaDataMapper.toDto(file);
+    }
+
+    // hands out presigned PUT URLs so the bytes go straight from the client to MinIO
+    public PresignedUploadDto presignUpload(UploadSessionRequest request) {
+        User user = CommonUtil.getLoggedInUser();
+
+        if (!StringUtils.hasText(request.getFileName())) {
+            throw new IllegalArgumentException("fileName is required");
+        }
+        if (request.getSize() == null || request.getSize() <= 0) {
+            throw new IllegalArgumentException("size is required for direct uploads");
+        }
+        if (request.getSize() > maxDirectFileSize.toBytes()) {
+            throw new IllegalArgumentException("File is larger than " + maxDirectFileSize.toMegabytes() + "MB");
+        }
+        if (!storageUsageService.hasRoomFor(user.getEmail(), request.getSize())) {
+            throw new SuccessException("Storage quota exceeded. Please upgrade your plan");
+        }
+        String objectName = minIOService.generateUniqueFileName(request.getFileName());
+        if (!userCreditsService.reserveCredits(1, objectName)) {
+            throw new SuccessException("Not enough credits . Please purchase your credit first");
+        }
+
+        boolean multipart = request.getSize() > multipartThreshold.toBytes();
+        String uploadId;
+        try {
+            uploadId = multipart ? minIOService.createMultipartUpload(objectName, request.getContentType()) : null;
+        } catch (RuntimeException e) {
+            userCreditsService.releaseCredits(user.getEmail(), 1, objectName);
+            throw e;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        UploadSession session = uploadSessionRepo.save(UploadSession.builder()
+                .username(user.getEmail())
+                .mode("DIRECT")
+                .uploadId(uploadId)
+                .objectName(objectName)
+                .originalFileName(request.getFileName())
+                .type(request.getContentType())
+                .size(request.getSize())
+                .status("ACTIVE")
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+
+        PresignedUploadDto.PresignedUploadDtoBuilder response = PresignedUploadDto.builder()
+                .sessionId(session.getId())
+                .expiresAt(now.plus(directUrlExpiry));
+
+        if (!multipart) {
+            return response
+                    .url(minIOService.getUploadUrl(objectName, null, null, directUrlExpiry))
+                    .partSize(request.getSize())
+                    .build();
+        }
+
+        long partSize = directPartSize(request.getSize());
+        int partCount = (int) ((request.getSize() + partSize - 1) / partSize);
+        List<PresignedUploadDto.PartUrlDto> parts = new ArrayList<>(partCount);
+        for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+            parts.add(new PresignedUploadDto.PartUrlDto(partNumber,
+                    minIOService.getUploadUrl(objectName, uploadId, partNumber, directUrlExpiry)));
+        }
+        return response
+                .partSize(partSize)
+                .parts(parts)
+                .build();
+    }
+
+    // the client says it is done: check what actually landed in MinIO before it becomes a file
+    public FileMetaDataDto finalizeDirectUpload(String id) throws ResourceNotFoundException {
+        User user = CommonUtil.getLoggedInUser();
+        UploadSession session = findOwnSession(id);
+        requireMode(session, "DIRECT");
+
+        if (uploadSessionRepo.transitionStatus(id, "ACTIVE", "COMPLETING", LocalDateTime.now()) == 0) {
+            throw new IllegalArgumentException("Upload session is not active");
+        }
+
+        StatObjectResponse stat;
+        try {
+            if (session.getUploadId() != null) {
+                completeMultipart(session);
+            }
+            stat = minIOService.getFileInfo(session.getObjectName());
+        } catch (RuntimeException e) {
+            // nothing (or not everything) uploaded yet, the client may still retry
+            uploadSessionRepo.transitionStatus(id, "COMPLETING", "ACTIVE", LocalDateTime.now());
+            throw e;
+        }
+
+        String rejection = checkDirectUpload(session, stat);
+        if (rejection != null) {
+            // settle the session first, a failing delete must not leave it COMPLETING
+            uploadSessionRepo.transitionStatus(id, "COMPLETING", "ABORTED", LocalDateTime.now());
+            userCreditsService.releaseCredits(user.getEmail(), 1, session.getObjectName());
+            try {
+                minIOService.deleteFile(session.getObjectName());
+            } catch (RuntimeException e) {
+                log.error("UploadSessionService :: finalizeDirectUpload :: " + session.getObjectName() + " :: " + e.getMessage());
+            }
+            throw new IllegalArgumentException(rejection);
+        }
+
+        StoredObjectDto stored = StoredObjectDto.builder()
+                .objectName(session.getObjectName())
+                .size(stat.size())
+                .build();
+
+        FileMetaDataDocument file = recordUpload(user, session, stored);
+        uploadSessionRepo.transitionStatus(id, "COMPLETING", "COMPLETED", LocalDateTime.now());
+
+        return fileMetaDataMapper.toDto(file);
+    }
+
+    // the object is complete, so a failure here can't be retried: recordUpload has dropped the object,
+    // the session ends like an abort and the credit goes back (over the quota or any other error)
+    private FileMetaDataDocument recordUpload(User user, UploadSession session, StoredObjectDto stored) {
+        try {
+            return fileMetaDataService.recordUpload(user, stored, session.getOriginalFileName(), session.getType(),
+                    () -> minIOService.deleteFile(session.getObjectName()));
+        } catch (RuntimeException e) {
+            uploadSessionRepo.transitionStatus(session.getId(), "COMPLETING", "ABORTED", LocalDateTime.now());
+            userCreditsService.releaseCredits(user.getEmail(), 1, session.getObjectName());
+            throw e;
+        }
+    }
+
+    // presigned URLs can't restrict what gets PUT, so the upload policy is enforced on the stored object
+    private String checkDirectUpload(UploadSession session, StatObjectResponse stat) {
+        if (stat.size() != session.getSize()) {
+            return "Uploaded size " + stat.size() + " does not match announced size " + session.getSize();
+        }
+        if (stat.size() > maxDirectFileSize.toBytes()) {
+            return "File is larger than " + maxDirectFileSize.toMegabytes() + "MB";
+        }
+        if (StringUtils.hasText(session.getType()) && !session.getType().equalsIgnoreCase(stat.contentType())) {
+            return "Uploaded content type " + stat.contentType() + " does not match announced type " + session.getType();
+        }
+        return null;
+    }
+
+    // MinIO is the source of truth for which parts exist, returns the assembled size
+    private long completeMultipart(UploadSession session) {
+        List<Part> parts = minIOService.listParts(session.getObjectName(), session.getUploadId());
+        if (parts.isEmpty()) {
+            throw new IllegalArgumentException("No chunks uploaded yet");
+        }
+        minIOService.completeMultipartUpload(session.getObjectName(), session.getUploadId(), parts);
+        return parts.stream().mapToLong(Part::partSize).sum();
+    }
+
+    // smallest part size that keeps the file under the 10,000 part limit, never below 16 MiB
+    private long directPartSize(long size) {
+        long partSize = Math.max(16L * 1024 * 1024, (size + MAX_PART_NUMBER - 1) / MAX_PART_NUMBER);
+        long mib = 1024 * 1024;
+        return (partSize + mib - 1) / mib * mib;
+    }
+
+    public void abortSession(String id) throws ResourceNotFoundException {
+        UploadSession session = findOwnSession(id);
+
+        if (uploadSessionRepo.transitionStatus(id, "ACTIVE", "ABORTED", LocalDateTime.now()) == 0) {
+            throw new IllegalArgumentException("Upload session is not active");
+        }
+        discardUpload(session);
+    }
+
+    // runs on every node, the status CAS makes sure each abandoned upload is aborted once
+    @Scheduled(fixedDelayString = "${upload.session.sweep-interval-ms:900000}")
+    public void sweepExpiredSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(sessionExpiry);
+        List<UploadSession> expired = uploadSessionRepo.findByStatusAndUpdatedAtBefore("ACTIVE", cutoff);
+
+        for (UploadSession session : expired) {
+            if (uploadSessionRepo.transitionStatus(session.getId(), "ACTIVE", "EXPIRED", LocalDateTime.now()) == 0) {
+                continue;
+            }
+            try {
+                discardUpload(session);
+            } catch (Exception e) {
+                log.error("UploadSessionService :: sweepExpiredSessions :: " + session.getId() + " :: " + e.getMessage());
+            }
+        }
+        if (!expired.isEmpty()) {
+            log.info("UploadSessionService :: sweepExpiredSessions :: expired " + expired.size() + " sessions");
+        }
+
+        // a node that died between completing the object and recording it leaves the session COMPLETING
+        List<UploadSession> stuck = uploadSessionRepo.findByStatusAndUpdatedAtBefore("COMPLETING",
+                LocalDateTime.now().minus(completingTimeout));
+        for (UploadSession session : stuck) {
+            try {
+                settleStuck(session);
+            } catch (Exception e) {
+                log.error("UploadSessionService :: sweepExpiredSessions :: " + session.getId() + " :: " + e.getMessage());
+            }
+        }
+    }
+
+    // the file row is what decides: it exists, then the upload went through and only the status is behind
+    private void settleStuck(UploadSession session) {
+        if (fileMetaDataRepo.existsByUploadFileName(session.getObjectName())) {
+            uploadSessionRepo.transitionStatus(session.getId(), "COMPLETING", "COMPLETED", LocalDateTime.now());
+            return;
+        }
+        if (uploadSessionRepo.transitionStatus(session.getId(), "COMPLETING", "EXPIRED", LocalDateTime.now()) == 0) {
+            return;
+        }
+        userCreditsService.releaseCredits(session.getUsername(), 1, session.getObjectName());
+        if (session.getUploadId() != null) {
+            try {
+                minIOService.abortMultipartUpload(session.getObjectName(), session.getUploadId());
+            } catch (RuntimeException e) {
+                // already completed into an object, which goes below
+            }
+        }
+        minIOService.deleteFile(session.getObjectName());
+        log.info("UploadSessionService :: sweepExpiredSessions :: discarded stuck session " + session.getId());
+    }
+
+    private void discardUpload(UploadSession session) {
+        userCreditsService.releaseCredits(session.getUsername(), 1, session.getObjectName());
+        if (session.getUploadId() != null) {
+            minIOService.abortMultipartUpload(session.getObjectName(), session.getUploadId());
+        } else {
+            // a single presigned PUT may have landed without ever being finalized
+            minIOService.deleteFile(session.getObjectName());
+        }
+    }
+
+    private UploadSession findOwnSession(String id) throws ResourceNotFoundException {
+        String username = CommonUtil.getLoggedInUser().getEmail();
+        return uploadSessionRepo.findByIdAndUsername(id, username)
+                .orElseThrow(() -> new ResourceNotFoundException("upload session not found"));
+    }
+
+    private void requireActive(UploadSession session) {
+        if (!"ACTIVE".equals(session.getStatus())) {
+            throw new IllegalArgumentException("Upload session is " + session.getStatus().toLowerCase());
+        }
+    }
+
+    private void requireMode(UploadSession session, String mode) {
+        // rows from before direct uploads existed have no mode and are chunked
+        String sessionMode = session.getMode() == null ? "CHUNKED" : session.getMode();
+        if (!mode.equals(sessionMode)) {
+            throw new IllegalArgumentException("Not a " + mode.toLowerCase() + " upload session");
+        }
+    }
+
+    private UploadSessionDto toDto(UploadSession session, List<Part> parts) {
+        return UploadSessionDto.builder()
+                .id(session.getId())
+                .originalFileName(session.getOriginalFileName())
+                .type(session.getType())
+                .size(session.getSize())
+                .status(session.getStatus())
+                .createdAt(session.getCreatedAt())
+                .expiresAt(session.getUpdatedAt().plus(sessionExpiry))
+                .uploadedParts(parts.stream()
+                        .map(p -> new UploadSessionDto.PartDto(p.partNumber(), p.partSize(), p.etag()))
+                        .toList())
+                .build();
+    }
+}
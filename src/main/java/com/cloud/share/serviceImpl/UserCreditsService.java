@@ -1,18 +1,30 @@
 package com.cloud.share.serviceImpl;
 
+import com.cloud.share.entity.CreditLedgerEntry;
 import com.cloud.share.entity.UserCredit;
+import com.cloud.share.repository.CreditLedgerRepo;
 import com.cloud.share.repository.UserCreditRepo;
 import com.cloud.share.util.CommonUtil;
-import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+
+// every balance change is one conditional UPDATE on user_credit plus one ledger row, in the same transaction
 @Service
 public class UserCreditsService {
 
     @Autowired
     private UserCreditRepo userCreditRepo;
 
+    @Autowired
+    private CreditLedgerRepo creditLedgerRepo;
+
+    @Autowired
+    private BandwidthService bandwidthService;
+
+    @Transactional
     public UserCredit createInitialCredit(String email) {
         UserCredit credit = UserCredit.builder()
                 .plan("BASIC")
@@ -20,7 +32,9 @@ public class UserCreditsService {
                 .username(email)
                 .build();
 
-        return userCreditRepo.save(credit);
+        UserCredit saved = userCreditRepo.save(credit);
+        record(email, credit.getCredits(), "SIGNUP", null);
+        return saved;
     }
 
 
@@ -34,37 +48,47 @@ public class UserCreditsService {
         return getUserCredit(email);
     }
 
-    public Boolean hasEnoughCredits(int requiredCredits) {
-        UserCredit credit = getUserCredit();
-        return credit.getCredits() >= requiredCredits;
-    }
-
-
-    public UserCredit consumeCredits() {
-        UserCredit userCredit = getUserCredit();
+    // takes the credits up front, false (and nothing taken) if the balance is too low
+    @Transactional
+    public boolean reserveCredits(int count, String reference) {
+        String email = CommonUtil.getLoggedInUser().getEmail();
+        getUserCredit(email);
 
-        if (userCredit.getCredits()<=0){
-            return null;
+        if (userCreditRepo.deductCredits(email, count) == 0) {
+            return false;
         }
-
-        userCredit.setCredits(userCredit.getCredits()-1);
-      return   userCreditRepo.save(userCredit);
+        record(email, -count, "UPLOAD", reference);
+        return true;
     }
 
+    // gives back credits reserved for an upload that never turned into a file
+    @Transactional
+    public void releaseCredits(String email, int count, String reference) {
+        userCreditRepo.addCredits(email, count);
+        record(email, count, "UPLOAD_REFUND", reference);
+    }
 
 
     //add more credit if plan change
-    public UserCredit addCredits(String email, int creditsToAdd,String plan) {
-        UserCredit userCredit = userCreditRepo.findByUsername(email).orElseGet(() -> createInitialCredit(email));
+    @Transactional
+    public UserCredit addCredits(String email, int creditsToAdd, String plan, String reference) {
+        getUserCredit(email);
 
-        userCredit.setCredits(userCredit.getCredits()+creditsToAdd);
-        userCredit.setPlan(plan);
-
-        return userCreditRepo.save(userCredit);
+        userCreditRepo.addCredits(email, creditsToAdd, plan);
+        record(email, creditsToAdd, "PURCHASE", reference);
+        bandwidthService.planChanged(email);
 
+        return getUserCredit(email);
+    }
 
+    private void record(String email, int delta, String reason, String reference) {
+        creditLedgerRepo.save(CreditLedgerEntry.builder()
+                .username(email)
+                .delta(delta)
+                .reason(reason)
+                .reference(reference)
+                .createdAt(LocalDateTime.now())
+                .build());
     }
 
 }
-
-
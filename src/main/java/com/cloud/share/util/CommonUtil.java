@@ -80,6 +80,40 @@ public class CommonUtil {
         }
     }
 
+    // true if an Accept-Encoding header allows the given coding (honours q=0 and the * wildcard)
+    public static boolean acceptsEncoding(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.trim().split(";");
+            String token = parts[0].trim();
+            if (!token.equalsIgnoreCase(coding) && !token.equals("*")) {
+                continue;
+            }
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(param.substring(2)) == 0;
+                    } catch (NumberFormatException e) {
+                        refused = true;
+                    }
+                }
+            }
+            if (!refused) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // LIKE patterns use '!' as escape character: a backslash would need escaping again inside MySQL string literals
+    public static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
     public static String getUrl(HttpServletRequest request) {
         String fullUrl = request.getRequestURL().toString();  // http://localhost:8080/api/v1/auth/
         String path = request.getServletPath();  //  /api/v1/auth/
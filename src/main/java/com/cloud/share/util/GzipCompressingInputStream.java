@@ -0,0 +1,122 @@
+package com.cloud.share.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Reading from this stream yields the gzip encoding of the wrapped stream, so compressed bytes can be
+ * pulled straight into an upload without a helper thread or an intermediate buffer of the whole file.
+ */
+public class GzipCompressingInputStream extends InputStream {
+
+    // magic, CM=deflate, no flags, no mtime, no extra flags, OS=unknown
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final InputStream in;
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+    private final CRC32 crc = new CRC32();
+
+    private final byte[] readBuffer = new byte[64 * 1024];
+
+    private byte[] pending = HEADER;  // header first, trailer last
+
+    private int pendingPos;
+
+    private long bytesRead;
+
+    private boolean trailerQueued;
+
+    private boolean done;
+
+    private boolean closed;
+
+    public GzipCompressingInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    // uncompressed bytes consumed so far, the original file size once the stream is drained
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int n = read(single, 0, 1);
+        return n < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (!done) {
+            if (pending != null) {
+                if (pendingPos < pending.length) {
+                    int n = Math.min(len, pending.length - pendingPos);
+                    System.arraycopy(pending, pendingPos, b, off, n);
+                    pendingPos += n;
+                    return n;
+                }
+                pending = null;
+                if (trailerQueued) {
+                    done = true;
+                    break;
+                }
+            }
+
+            if (deflater.finished()) {
+                // everything is compressed, the native zlib state isn't needed for the trailer
+                deflater.end();
+                pending = trailer();
+                pendingPos = 0;
+                trailerQueued = true;
+                continue;
+            }
+
+            int n = deflater.deflate(b, off, len);
+            if (n > 0) {
+                return n;
+            }
+
+            if (deflater.needsInput()) {
+                int read = in.read(readBuffer);
+                if (read < 0) {
+                    deflater.finish();
+                } else if (read > 0) {
+                    crc.update(readBuffer, 0, read);
+                    bytesRead += read;
+                    deflater.setInput(readBuffer, 0, read);
+                }
+            }
+        }
+        return -1;
+    }
+
+    // CRC32 and input size modulo 2^32, both little endian
+    private byte[] trailer() {
+        long checksum = crc.getValue();
+        return new byte[]{
+                (byte) checksum, (byte) (checksum >> 8), (byte) (checksum >> 16), (byte) (checksum >> 24),
+                (byte) bytesRead, (byte) (bytesRead >> 8), (byte) (bytesRead >> 16), (byte) (bytesRead >> 24)
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        deflater.end();
+        in.close();
+    }
+}
@@ -0,0 +1,48 @@
+package com.cloud.share.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable in-memory sink without locks. Wrapping streams whose write methods are synchronized (ZipOutputStream)
+ * write into this, and the caller drains it to the real, possibly blocking, stream outside their monitor,
+ * so a virtual thread never parks on network I/O while holding it.
+ */
+public class HandoffBuffer extends OutputStream {
+
+    private byte[] buffer;
+
+    private int count;
+
+    public HandoffBuffer(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(count + 1);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    // moves everything buffered so far to the target and empties the buffer
+    public void drainTo(OutputStream target) throws IOException {
+        if (count > 0) {
+            target.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+        }
+    }
+}
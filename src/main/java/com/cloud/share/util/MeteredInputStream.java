@@ -0,0 +1,80 @@
+package com.cloud.share.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+
+// reports bytes as they are read and the total once on close, without locking
+public class MeteredInputStream extends FilterInputStream {
+
+    private final LongConsumer onRead;
+
+    private final LongConsumer onClose;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private long total;
+
+    public MeteredInputStream(InputStream in, LongConsumer onRead, LongConsumer onClose) {
+        super(in);
+        this.onRead = onRead;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            count(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0) {
+            count(skipped);
+        }
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            onClose.accept(total);
+        }
+        super.close();
+    }
+
+    // FilterInputStream's mark/reset are synchronized, and a rewind would double count anyway
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private void count(long n) {
+        total += n;
+        onRead.accept(n);
+    }
+}
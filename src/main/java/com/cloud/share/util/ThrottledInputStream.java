@@ -0,0 +1,53 @@
+package com.cloud.share.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.LongConsumer;
+
+// paces reads to a TokenBucket; reading slower is what pushes back on the sender through TCP
+public class ThrottledInputStream extends FilterInputStream {
+
+    private final TokenBucket bucket;
+
+    private final LongConsumer onWait;
+
+    public ThrottledInputStream(InputStream in, TokenBucket bucket, LongConsumer onWait) {
+        super(in);
+        this.bucket = bucket;
+        this.onWait = onWait;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            Throttling.pace(bucket, 1, onWait);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            Throttling.pace(bucket, n, onWait);
+        }
+        return n;
+    }
+
+    // FilterInputStream's mark/reset are synchronized, a parked virtual thread must not hold a monitor
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readlimit) {
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+}
@@ -0,0 +1,33 @@
+package com.cloud.share.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.LongConsumer;
+
+// paces writes to a TokenBucket, for bodies we write ourselves
+public class ThrottledOutputStream extends FilterOutputStream {
+
+    private final TokenBucket bucket;
+
+    private final LongConsumer onWait;
+
+    public ThrottledOutputStream(OutputStream out, TokenBucket bucket, LongConsumer onWait) {
+        super(out);
+        this.bucket = bucket;
+        this.onWait = onWait;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        Throttling.pace(bucket, 1, onWait);
+        out.write(b);
+    }
+
+    // FilterOutputStream would write the array one byte at a time
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        Throttling.pace(bucket, len, onWait);
+        out.write(b, off, len);
+    }
+}
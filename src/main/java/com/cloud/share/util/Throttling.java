@@ -0,0 +1,28 @@
+package com.cloud.share.util;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+
+final class Throttling {
+
+    private Throttling() {
+    }
+
+    // parks rather than sleeping under a lock, so a throttled virtual thread frees its carrier
+    static void pace(TokenBucket bucket, long bytes, LongConsumer onWait) throws InterruptedIOException {
+        long wait = bucket.take(bytes);
+        if (wait <= 0) {
+            return;
+        }
+        onWait.accept(wait);
+        long deadline = System.nanoTime() + wait;
+        for (long left = wait; left > 0; left = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while throttled");
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.cloud.share.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Byte rate limiter shared by every stream of one user or client. Kept as a single virtual clock
+ * (GCRA): taking bytes is one CAS and never allocates, so it can sit inside a copy loop. Up to
+ * {@code burst} bytes pass without waiting after an idle period.
+ */
+public class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    // costs are capped well below the range where differences of nanoTime values stop being comparable
+    static final long MAX_COST_NANOS = Long.MAX_VALUE / 4;
+
+    private final long bytesPerSecond;
+
+    private final long burstNanos;
+
+    private final LongSupplier clock;
+
+    // instant at which everything taken so far has been paid for
+    private final AtomicLong paidUntil;
+
+    public TokenBucket(long bytesPerSecond, long burst) {
+        this(bytesPerSecond, burst, System::nanoTime);
+    }
+
+    // tests drive the clock by hand
+    TokenBucket(long bytesPerSecond, long burst, LongSupplier clock) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("bytesPerSecond must be positive");
+        }
+        this.bytesPerSecond = bytesPerSecond;
+        this.clock = clock;
+        this.burstNanos = cost(Math.max(burst, 1));
+        this.paidUntil = new AtomicLong(clock.getAsLong() - burstNanos);
+    }
+
+    // takes the bytes and returns how long the caller has to wait before sending them, in nanoseconds
+    public long take(long bytes) {
+        long cost = cost(bytes);
+        while (true) {
+            long now = clock.getAsLong();
+            long paid = paidUntil.get();
+            // credit from an idle period is capped at the burst; nanoTime may wrap, so compare by difference
+            long start = paid - (now - burstNanos) > 0 ? paid : now - burstNanos;
+            long next = start + cost;
+            if (paidUntil.compareAndSet(paid, next)) {
+                return Math.max(0, next - now);
+            }
+        }
+    }
+
+    // bytes * 1e9 overflows past ~9GB (a large burst), so whole seconds and the remainder are priced apart
+    long cost(long bytes) {
+        long seconds = bytes / bytesPerSecond;
+        if (seconds >= MAX_COST_NANOS / NANOS_PER_SECOND) {
+            return MAX_COST_NANOS;
+        }
+        long rest = bytes % bytesPerSecond;
+        long restNanos = rest <= Long.MAX_VALUE / NANOS_PER_SECOND
+                ? rest * NANOS_PER_SECOND / bytesPerSecond
+                : (long) ((double) rest / bytesPerSecond * NANOS_PER_SECOND);
+        return Math.min(MAX_COST_NANOS, seconds * NANOS_PER_SECOND + restNanos);
+    }
+}
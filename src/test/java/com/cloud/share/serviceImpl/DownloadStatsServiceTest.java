@@ -0,0 +1,116 @@
+package com.cloud.share.serviceImpl;
+
+import com.cloud.share.entity.FileDownloadStats;
+import com.cloud.share.repository.FileDownloadStatsRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DownloadStatsServiceTest {
+
+    private DownloadStatsService service;
+
+    // what reached the database, summed per file
+    private final Map<String, Long> downloads = new ConcurrentHashMap<>();
+    private final Map<String, Long> views = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        FileDownloadStatsRepo repo = mock(FileDownloadStatsRepo.class);
+        when(repo.findAllById(any())).thenReturn(List.of());
+        when(repo.saveAll(any())).thenAnswer(invocation -> {
+            Iterable<FileDownloadStats> rows = invocation.getArgument(0);
+            for (FileDownloadStats row : rows) {
+                downloads.merge(row.getFileId(), row.getDownloads(), Long::sum);
+                views.merge(row.getFileId(), row.getViews(), Long::sum);
+            }
+            return new ArrayList<>();
+        });
+
+        service = new DownloadStatsService();
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "fileDownloadStatsRepo", repo);
+    }
+
+    @Test
+    void flushWritesEveryRecordedEvent() {
+        for (int i = 0; i < 5; i++) {
+            service.recordDownload("a", "visitor-" + i);
+        }
+        service.recordView("a", "visitor-0");
+        service.recordView("b", null);
+        service.flush();
+
+        assertThat(downloads).containsEntry("a", 5L);
+        assertThat(views).containsEntry("a", 1L).containsEntry("b", 1L);
+
+        // nothing new, nothing written again
+        service.flush();
+        assertThat(downloads).containsEntry("a", 5L);
+    }
+
+    @Test
+    void noIncrementIsLostWhileFlushesRunConcurrently() throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        // a hot file and a set of files that keep going idle, so entries get retired mid traffic
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            files.add("file-" + i);
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> recorders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            Thread recorder = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    service.recordDownload("hot", null);
+                    if (i % 100 == 0) {
+                        service.recordView(files.get((i / 100 + offset) % files.size()), null);
+                    }
+                }
+            });
+            recorder.start();
+            recorders.add(recorder);
+        }
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread flusher = new Thread(() -> {
+            while (running.get()) {
+                service.flush();
+            }
+        });
+        flusher.start();
+
+        start.countDown();
+        for (Thread recorder : recorders) {
+            recorder.join();
+        }
+        running.set(false);
+        flusher.join();
+        service.flush();
+
+        assertThat(downloads.get("hot")).isEqualTo((long) threads * perThread);
+        long totalViews = views.values().stream().mapToLong(Long::longValue).sum();
+        assertThat(totalViews).isEqualTo((long) threads * (perThread / 100));
+    }
+}
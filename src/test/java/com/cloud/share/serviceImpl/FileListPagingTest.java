@@ -0,0 +1,175 @@
+package com.cloud.share.serviceImpl;
+
+import com.cloud.share.config.security.CustomUserDetails;
+import com.cloud.share.dto.FileListQuery;
+import com.cloud.share.dto.FileMetaDataDto;
+import com.cloud.share.dto.FileMetaDataMapperImpl;
+import com.cloud.share.dto.FilePageDto;
+import com.cloud.share.entity.FileMetaDataDocument;
+import com.cloud.share.entity.User;
+import com.cloud.share.repository.FileMetaDataRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// walks GET /files/my page by page against a real database, ties on the sort key included
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:paging;MODE=MySQL;NON_KEYWORDS=USER")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class FileListPagingTest {
+
+    private static final String OWNER = "owner@example.com";
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Autowired
+    private FileMetaDataRepo fileMetaDataRepo;
+
+    private FileMetaDataService service;
+
+    private final List<FileMetaDataDocument> owned = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        service = new FileMetaDataService();
+        ReflectionTestUtils.setField(service, "fileMetaDataRepo", fileMetaDataRepo);
+        ReflectionTestUtils.setField(service, "fileMetaDataMapper", new FileMetaDataMapperImpl());
+
+        User user = new User();
+        user.setEmail(OWNER);
+        CustomUserDetails principal = new CustomUserDetails(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        // three upload times and three sizes, so every page boundary falls inside a run of equal keys
+        for (int i = 0; i < 23; i++) {
+            owned.add(file(String.format("f%02d", i), OWNER, T0.plusMinutes(i % 3), 100L * (i % 3),
+                    i % 2 == 0 ? "image/png" : "application/pdf", i % 4 == 0));
+        }
+        fileMetaDataRepo.saveAll(owned);
+        fileMetaDataRepo.save(file("other", "someone@example.com", T0, 100L, "image/png", true));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void newestFirstVisitsEveryFileOnce() {
+        assertThat(walk("uploadAt", null, 5, null)).isEqualTo(expected(
+                Comparator.comparing(FileMetaDataDocument::getUploadAt).thenComparing(FileMetaDataDocument::getId).reversed()));
+    }
+
+    @Test
+    void oldestFirstVisitsEveryFileOnce() {
+        assertThat(walk("uploadAt", "asc", 4, null)).isEqualTo(expected(
+                Comparator.comparing(FileMetaDataDocument::getUploadAt).thenComparing(FileMetaDataDocument::getId)));
+    }
+
+    @Test
+    void bySizeInBothDirections() {
+        Comparator<FileMetaDataDocument> bySize =
+                Comparator.comparing(FileMetaDataDocument::getSize).thenComparing(FileMetaDataDocument::getId);
+        assertThat(walk("size", "asc", 7, null)).isEqualTo(expected(bySize));
+        assertThat(walk("size", "desc", 7, null)).isEqualTo(expected(bySize.reversed()));
+    }
+
+    @Test
+    void filtersApplyOnEveryPage() {
+        FileListQuery filter = new FileListQuery();
+        filter.setType("image/");
+        filter.setVisibility("private");
+        List<String> ids = walk("uploadAt", "asc", 2, filter);
+
+        assertThat(ids).isEqualTo(owned.stream()
+                .filter(f -> f.getType().startsWith("image/") && !f.getIsPublic())
+                .sorted(Comparator.comparing(FileMetaDataDocument::getUploadAt).thenComparing(FileMetaDataDocument::getId))
+                .map(FileMetaDataDocument::getId)
+                .toList());
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        FileListQuery query = new FileListQuery();
+        query.setLimit(23);
+        FilePageDto page = service.getFiles(query);
+        assertThat(page.getFiles()).hasSize(23);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void rejectsBrokenOrForeignCursors() {
+        FileListQuery garbage = new FileListQuery();
+        garbage.setCursor("not a cursor");
+        assertThatThrownBy(() -> service.getFiles(garbage)).isInstanceOf(IllegalArgumentException.class);
+
+        FileListQuery badValue = new FileListQuery();
+        badValue.setCursor(Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("uploadAt|yesterday|f01".getBytes(StandardCharsets.UTF_8)));
+        assertThatThrownBy(() -> service.getFiles(badValue)).isInstanceOf(IllegalArgumentException.class);
+
+        // a cursor only continues the sort it came from
+        FileListQuery bySize = new FileListQuery();
+        bySize.setSort("size");
+        bySize.setLimit(5);
+        FileListQuery byDate = new FileListQuery();
+        byDate.setCursor(service.getFiles(bySize).getNextCursor());
+        assertThatThrownBy(() -> service.getFiles(byDate)).isInstanceOf(IllegalArgumentException.class);
+
+        FileListQuery tooLarge = new FileListQuery();
+        tooLarge.setLimit(201);
+        assertThatThrownBy(() -> service.getFiles(tooLarge)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private List<String> walk(String sort, String direction, int limit, FileListQuery filter) {
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            FileListQuery query = filter != null ? filter : new FileListQuery();
+            query.setSort(sort);
+            query.setDirection(direction);
+            query.setLimit(limit);
+            query.setCursor(cursor);
+            FilePageDto page = service.getFiles(query);
+            assertThat(page.getFiles().size()).isLessThanOrEqualTo(limit);
+            page.getFiles().stream().map(FileMetaDataDto::getId).forEach(ids::add);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private List<String> expected(Comparator<FileMetaDataDocument> order) {
+        return owned.stream().sorted(order).map(FileMetaDataDocument::getId).toList();
+    }
+
+    private static FileMetaDataDocument file(String id, String username, LocalDateTime uploadAt, long size,
+                                             String type, boolean isPublic) {
+        return FileMetaDataDocument.builder()
+                .id(id)
+                .uploadFileName(id)
+                .originalFileName(id + ".bin")
+                .fileLocation(id)
+                .type(type)
+                .size(size)
+                .username(username)
+                .isPublic(isPublic)
+                .uploadAt(uploadAt)
+                .build();
+    }
+}
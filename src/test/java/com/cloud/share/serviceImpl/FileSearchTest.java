@@ -0,0 +1,162 @@
+package com.cloud.share.serviceImpl;
+
+import com.cloud.share.config.security.CustomUserDetails;
+import com.cloud.share.dto.FileMetaDataDto;
+import com.cloud.share.dto.FileMetaDataMapperImpl;
+import com.cloud.share.entity.FileMetaDataDocument;
+import com.cloud.share.entity.FileNameTerm;
+import com.cloud.share.entity.User;
+import com.cloud.share.repository.FileMetaDataRepo;
+import com.cloud.share.repository.FileNameTermRepo;
+import com.cloud.share.repository.JobLeaseRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// name search against a real database: the trigram index, short queries and the one-node backfill
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:search;MODE=MySQL;NON_KEYWORDS=USER")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class FileSearchTest {
+
+    private static final String OWNER = "owner@example.com";
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Autowired
+    private FileMetaDataRepo fileMetaDataRepo;
+
+    @Autowired
+    private FileNameTermRepo fileNameTermRepo;
+
+    @Autowired
+    private JobLeaseRepo jobLeaseRepo;
+
+    private FileSearchService service;
+
+    @BeforeEach
+    void setUp() {
+        service = newService();
+
+        User user = new User();
+        user.setEmail(OWNER);
+        CustomUserDetails principal = new CustomUserDetails(user);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        List<FileMetaDataDocument> files = fileMetaDataRepo.saveAll(List.of(
+                file("f1", OWNER, "a.pdf", 1),
+                file("f2", OWNER, "Quarterly Report 2025.xlsx", 2),
+                file("f3", OWNER, "holiday photo.png", 3),
+                file("f4", "someone@example.com", "report.pdf", 4)));
+        service.index(files);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void twoCharactersMatchAtTheEndOfAName() {
+        assertThat(names(service.search("df", "substring", null))).containsExactly("a.pdf");
+    }
+
+    @Test
+    void twoCharactersMatchInsideAName() {
+        assertThat(names(service.search("ol", "substring", null))).containsExactly("holiday photo.png");
+    }
+
+    @Test
+    void longerSubstringsAcrossWords() {
+        assertThat(names(service.search("rly rep", "substring", null))).containsExactly("Quarterly Report 2025.xlsx");
+    }
+
+    @Test
+    void prefixMatchesOnlyTheStart() {
+        assertThat(names(service.search("ho", "prefix", null))).containsExactly("holiday photo.png");
+        assertThat(service.search("ph", "prefix", null)).isEmpty();
+    }
+
+    @Test
+    void tokensMatchWordStarts() {
+        assertThat(names(service.search("rep 20", "token", null))).containsExactly("Quarterly Report 2025.xlsx");
+    }
+
+    @Test
+    void otherOwnersFilesAreNotFound() {
+        assertThat(names(service.search("report", "substring", null))).containsExactly("Quarterly Report 2025.xlsx");
+    }
+
+    @Test
+    void singleCharacterQueriesAreRejected() {
+        assertThatThrownBy(() -> service.search("a", "substring", null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.search(" x ", "token", null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void namesAreIndexedByWordsAndTrigramsOnly() {
+        assertThat(FileSearchService.terms("a.pdf")).containsExactly(
+                FileNameTerm.INDEXED, "w:a", "w:pdf", "g:a.p", "g:.pd", "g:pdf", "g:df ");
+    }
+
+    @Test
+    void backfillRunsOnTheNodeHoldingTheLease() {
+        // the test runs in one transaction; outside it every save commits on its own
+        fileMetaDataRepo.saveAndFlush(file("f5", OWNER, "unindexed notes.txt", 5));
+        FileSearchService otherNode = newService();
+
+        service.backfill();
+        fileNameTermRepo.flush();
+        otherNode.backfill();
+
+        assertThat(fileNameTermRepo.findAll()).filteredOn(term -> term.getFileId().equals("f5"))
+                .extracting(FileNameTerm::getTerm)
+                .contains(FileNameTerm.INDEXED, "w:notes");
+        assertThat(jobLeaseRepo.findAll()).hasSize(1);
+        // the lease is still held, the other node leaves the work alone
+        assertThat(ReflectionTestUtils.getField(otherNode, "backfillCursor")).isEqualTo("");
+    }
+
+    private FileSearchService newService() {
+        FileSearchService search = new FileSearchService();
+        JobLeaseService leases = new JobLeaseService();
+        ReflectionTestUtils.setField(leases, "jobLeaseRepo", jobLeaseRepo);
+        ReflectionTestUtils.setField(search, "fileNameTermRepo", fileNameTermRepo);
+        ReflectionTestUtils.setField(search, "fileMetaDataRepo", fileMetaDataRepo);
+        ReflectionTestUtils.setField(search, "fileMetaDataMapper", new FileMetaDataMapperImpl());
+        ReflectionTestUtils.setField(search, "jobLeaseService", leases);
+        return search;
+    }
+
+    private static List<String> names(List<FileMetaDataDto> files) {
+        return files.stream().map(FileMetaDataDto::getOriginalFileName).toList();
+    }
+
+    private static FileMetaDataDocument file(String id, String username, String name, int minute) {
+        return FileMetaDataDocument.builder()
+                .id(id)
+                .uploadFileName(id)
+                .originalFileName(name)
+                .fileLocation(id)
+                .type("application/octet-stream")
+                .size(1L)
+                .username(username)
+                .isPublic(false)
+                .uploadAt(T0.plusMinutes(minute))
+                .build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.cloud.share.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GzipCompressingInputStreamTest {
+
+    @Test
+    void emptyInputRoundTrips() throws IOException {
+        assertRoundTrip(new byte[0]);
+    }
+
+    @Test
+    void smallTextRoundTrips() throws IOException {
+        assertRoundTrip("hello, cloudshare".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void compressibleInputShrinks() throws IOException {
+        byte[] data = "the same line over and over\n".repeat(20_000).getBytes(StandardCharsets.UTF_8);
+
+        byte[] gzipped = compress(data, 8192);
+        assertThat(gzipped.length).isLessThan(data.length / 20);
+        assertThat(decompress(gzipped)).isEqualTo(data);
+    }
+
+    @Test
+    void incompressibleInputSpanningManyBuffersRoundTrips() throws IOException {
+        // several times the 64KB read buffer, random so the deflater emits more than it is fed
+        byte[] data = new byte[300 * 1024 + 17];
+        new Random(7).nextBytes(data);
+        assertRoundTrip(data);
+    }
+
+    @Test
+    void singleByteReadsRoundTrip() throws IOException {
+        byte[] data = "abcabcabc-single-bytes".repeat(100).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream gzip = new GzipCompressingInputStream(new ByteArrayInputStream(data))) {
+            for (int b = gzip.read(); b >= 0; b = gzip.read()) {
+                out.write(b);
+            }
+        }
+        assertThat(decompress(out.toByteArray())).isEqualTo(data);
+    }
+
+    @Test
+    void countsTheUncompressedBytes() throws IOException {
+        byte[] data = new byte[200_000];
+        new Random(1).nextBytes(data);
+        try (GzipCompressingInputStream gzip = new GzipCompressingInputStream(new ByteArrayInputStream(data))) {
+            gzip.readAllBytes();
+            assertThat(gzip.getBytesRead()).isEqualTo(data.length);
+        }
+    }
+
+    @Test
+    void staysAtEndOnceDrained() throws IOException {
+        try (InputStream gzip = new GzipCompressingInputStream(new ByteArrayInputStream(new byte[10]))) {
+            gzip.readAllBytes();
+            assertThat(gzip.read()).isEqualTo(-1);
+            assertThat(gzip.read(new byte[8], 0, 8)).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void closeClosesTheSourceAndCanRepeat() throws IOException {
+        boolean[] closed = new boolean[1];
+        InputStream source = new ByteArrayInputStream(new byte[100]) {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        InputStream gzip = new GzipCompressingInputStream(source);
+        gzip.read(new byte[4], 0, 4);
+
+        gzip.close();
+        gzip.close();
+        assertThat(closed[0]).isTrue();
+        assertThatThrownBy(() -> gzip.read(new byte[4], 0, 4)).isInstanceOf(IOException.class);
+    }
+
+    private static void assertRoundTrip(byte[] data) throws IOException {
+        // odd sized reads, so the header and trailer get split across calls
+        assertThat(decompress(compress(data, 7))).isEqualTo(data);
+        assertThat(decompress(compress(data, 64 * 1024))).isEqualTo(data);
+    }
+
+    private static byte[] compress(byte[] data, int chunk) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream gzip = new GzipCompressingInputStream(new ByteArrayInputStream(data))) {
+            byte[] buffer = new byte[chunk];
+            for (int n = gzip.read(buffer, 0, chunk); n >= 0; n = gzip.read(buffer, 0, chunk)) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] gzipped) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            return in.readAllBytes();
+        }
+    }
+}
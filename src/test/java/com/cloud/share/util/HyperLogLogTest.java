@@ -0,0 +1,83 @@
+package com.cloud.share.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    @Test
+    void emptySketchCountsZero() {
+        assertThat(new HyperLogLog().cardinality()).isZero();
+    }
+
+    @Test
+    void smallCardinalitiesAreNearlyExact() {
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            hll.add("visitor-" + i);
+        }
+        assertThat(hll.cardinality()).isCloseTo(100L, within(3L));
+    }
+
+    @Test
+    void largeCardinalitiesStayWithinTheExpectedError() {
+        HyperLogLog hll = new HyperLogLog();
+        int distinct = 200_000;
+        for (int i = 0; i < distinct; i++) {
+            hll.add("visitor-" + i);
+        }
+        // 2.3% standard error, 3 sigma
+        assertThat((double) hll.cardinality()).isCloseTo(distinct, within(distinct * 0.07));
+    }
+
+    @Test
+    void repeatedValuesDoNotChangeTheSketch() {
+        HyperLogLog hll = new HyperLogLog();
+        assertThat(hll.add("same")).isTrue();
+        for (int i = 0; i < 1000; i++) {
+            assertThat(hll.add("same")).isFalse();
+        }
+        assertThat(hll.cardinality()).isEqualTo(1L);
+    }
+
+    @Test
+    void mergeEstimatesTheUnionAndIsIdempotent() {
+        HyperLogLog a = new HyperLogLog();
+        HyperLogLog b = new HyperLogLog();
+        HyperLogLog all = new HyperLogLog();
+        for (int i = 0; i < 30_000; i++) {
+            a.add("visitor-" + i);
+            all.add("visitor-" + i);
+        }
+        // overlapping halves
+        for (int i = 20_000; i < 50_000; i++) {
+            b.add("visitor-" + i);
+            all.add("visitor-" + i);
+        }
+
+        a.merge(b.toByteArray());
+        assertThat(a.toByteArray()).isEqualTo(all.toByteArray());
+
+        long union = a.cardinality();
+        a.merge(b.toByteArray());
+        assertThat(a.cardinality()).isEqualTo(union);
+        assertThat((double) union).isCloseTo(50_000, within(50_000 * 0.07));
+    }
+
+    @Test
+    void roundTripsThroughItsBytesAndIgnoresForeignArrays() {
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < 5000; i++) {
+            hll.add("visitor-" + i);
+        }
+        HyperLogLog copy = new HyperLogLog(hll.toByteArray());
+        assertThat(copy.cardinality()).isEqualTo(hll.cardinality());
+
+        copy.merge(new byte[10]);
+        copy.merge(null);
+        assertThat(copy.cardinality()).isEqualTo(hll.cardinality());
+        assertThat(new HyperLogLog(new byte[3]).cardinality()).isZero();
+    }
+}
@@ -0,0 +1,100 @@
+package com.cloud.share.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the clock never moves, so every wait is exactly the debt at that point; at 1 byte per nanosecond the real
+// parks stay in the microseconds
+class ThrottledStreamsTest {
+
+    private static final long BYTES_PER_SECOND = 1_000_000_000L;
+
+    private final List<Long> waits = new ArrayList<>();
+
+    private final TokenBucket bucket = new TokenBucket(BYTES_PER_SECOND, 1000, () -> 0L);
+
+    @Test
+    void inputPassesTheBurstThenWaitsPerRead() throws IOException {
+        byte[] data = bytes(1600);
+        InputStream in = new ThrottledInputStream(new ByteArrayInputStream(data), bucket, waits::add);
+
+        byte[] read = new byte[1600];
+        assertThat(in.read(read, 0, 1000)).isEqualTo(1000);
+        assertThat(waits).isEmpty();
+
+        assertThat(in.read(read, 1000, 500)).isEqualTo(500);
+        assertThat(in.read()).isEqualTo(data[1500] & 0xff);
+        read[1500] = data[1500];
+        assertThat(in.read(read, 1501, 99)).isEqualTo(99);
+        assertThat(waits).containsExactly(500L, 501L, 600L);
+        assertThat(read).isEqualTo(data);
+    }
+
+    @Test
+    void endOfInputCostsNothing() throws IOException {
+        InputStream in = new ThrottledInputStream(new ByteArrayInputStream(bytes(1000)), bucket, waits::add);
+
+        assertThat(in.readAllBytes()).hasSize(1000);
+        assertThat(in.read()).isEqualTo(-1);
+        assertThat(in.read(new byte[10], 0, 10)).isEqualTo(-1);
+        assertThat(waits).isEmpty();
+    }
+
+    @Test
+    void outputPassesTheBurstThenWaitsPerWrite() throws IOException {
+        byte[] data = bytes(1300);
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        OutputStream out = new ThrottledOutputStream(sink, bucket, waits::add);
+
+        out.write(data, 0, 1000);
+        assertThat(waits).isEmpty();
+
+        out.write(data[1000]);
+        out.write(data, 1001, 299);
+        assertThat(waits).containsExactly(1L, 300L);
+        assertThat(sink.toByteArray()).isEqualTo(data);
+    }
+
+    @Test
+    void streamsOfOneBucketShareItsRate() throws IOException {
+        List<Long> otherWaits = new ArrayList<>();
+        InputStream download = new ThrottledInputStream(new ByteArrayInputStream(bytes(2000)), bucket, waits::add);
+        OutputStream upload = new ThrottledOutputStream(new ByteArrayOutputStream(), bucket, otherWaits::add);
+
+        // the first stream takes the whole burst, the second pays for it
+        download.read(new byte[1000], 0, 1000);
+        upload.write(bytes(400), 0, 400);
+        download.read(new byte[600], 0, 600);
+
+        assertThat(otherWaits).containsExactly(400L);
+        assertThat(waits).containsExactly(1000L);
+    }
+
+    @Test
+    void separateBucketsDoNotShare() throws IOException {
+        TokenBucket other = new TokenBucket(BYTES_PER_SECOND, 1000, () -> 0L);
+        InputStream first = new ThrottledInputStream(new ByteArrayInputStream(bytes(1000)), bucket, waits::add);
+        InputStream second = new ThrottledInputStream(new ByteArrayInputStream(bytes(1000)), other, waits::add);
+
+        first.readAllBytes();
+        second.readAllBytes();
+        assertThat(waits).isEmpty();
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        return data;
+    }
+}
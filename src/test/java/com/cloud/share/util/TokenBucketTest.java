@@ -0,0 +1,134 @@
+package com.cloud.share.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTest {
+
+    private static final long MS = 1_000_000L;
+
+    private static final long SECOND = 1_000 * MS;
+
+    private final AtomicLong clock = new AtomicLong(42 * SECOND);
+
+    @Test
+    void burstPassesWithoutWaiting() {
+        TokenBucket bucket = new TokenBucket(1000, 500, clock::get);
+
+        assertThat(bucket.take(300)).isZero();
+        assertThat(bucket.take(200)).isZero();
+        // the burst is used up, the next byte costs 1ms at 1000 B/s
+        assertThat(bucket.take(1)).isEqualTo(MS);
+    }
+
+    @Test
+    void waitsAddUpWhenTheClockStandsStill() {
+        TokenBucket bucket = new TokenBucket(1000, 500, clock::get);
+        bucket.take(500);
+
+        assertThat(bucket.take(100)).isEqualTo(100 * MS);
+        assertThat(bucket.take(100)).isEqualTo(200 * MS);
+        assertThat(bucket.take(250)).isEqualTo(450 * MS);
+    }
+
+    @Test
+    void holdsTheSteadyRate() {
+        TokenBucket bucket = new TokenBucket(1000, 500, clock::get);
+        bucket.take(500);
+
+        long start = clock.get();
+        long bytes = 0;
+        for (int i = 0; i < 100; i++) {
+            long wait = bucket.take(100);
+            assertThat(wait).isEqualTo(100 * MS);
+            bytes += 100;
+            // a caller that waits exactly as told, then sends
+            clock.addAndGet(wait);
+        }
+        assertThat(bytes * SECOND / (clock.get() - start)).isEqualTo(1000);
+    }
+
+    @Test
+    void idleCreditIsCappedAtTheBurst() {
+        TokenBucket bucket = new TokenBucket(1000, 500, clock::get);
+        bucket.take(500);
+
+        clock.addAndGet(60 * SECOND);
+        assertThat(bucket.take(500)).isZero();
+        assertThat(bucket.take(1)).isEqualTo(MS);
+    }
+
+    @Test
+    void partialIdleCreditIsKept() {
+        TokenBucket bucket = new TokenBucket(1000, 500, clock::get);
+        bucket.take(500);
+
+        clock.addAndGet(200 * MS);
+        assertThat(bucket.take(200)).isZero();
+        assertThat(bucket.take(100)).isEqualTo(100 * MS);
+    }
+
+    @Test
+    void survivesTheNanoTimeWrap() {
+        clock.set(Long.MAX_VALUE - 100 * MS);
+        TokenBucket bucket = new TokenBucket(1000, 500, clock::get);
+        bucket.take(500);
+
+        // idle across the wrap: the clock is now negative, the last payment still near Long.MAX_VALUE
+        clock.addAndGet(10 * SECOND);
+        assertThat(clock.get()).isNegative();
+        assertThat(bucket.take(500)).isZero();
+        assertThat(bucket.take(1)).isEqualTo(MS);
+    }
+
+    @Test
+    void waitsAcrossTheNanoTimeWrap() {
+        clock.set(Long.MAX_VALUE - 50 * MS);
+        TokenBucket bucket = new TokenBucket(1000, 500, clock::get);
+        bucket.take(500);
+
+        // paid until past the wrap
+        assertThat(bucket.take(100)).isEqualTo(100 * MS);
+        clock.addAndGet(60 * MS);
+        assertThat(clock.get()).isNegative();
+        assertThat(bucket.take(100)).isEqualTo(140 * MS);
+    }
+
+    @Test
+    void largeBurstDoesNotOverflowItsCost() {
+        long burst = 20L * 1024 * 1024 * 1024;
+        TokenBucket bucket = new TokenBucket(1_000_000, burst, clock::get);
+
+        assertThat(bucket.cost(burst)).isEqualTo(burst * 1000);
+        assertThat(bucket.take(burst)).isZero();
+        assertThat(bucket.take(1_000_000)).isEqualTo(SECOND);
+    }
+
+    @Test
+    void costIsCappedForHugeTakes() {
+        TokenBucket bucket = new TokenBucket(1, 1, clock::get);
+
+        assertThat(bucket.cost(Long.MAX_VALUE)).isEqualTo(TokenBucket.MAX_COST_NANOS);
+        assertThat(bucket.take(Long.MAX_VALUE)).isEqualTo(TokenBucket.MAX_COST_NANOS - SECOND);
+    }
+
+    @Test
+    void costStaysExactForRatesAboveTheMultiplyRange() {
+        long rate = 40_000_000_000L;
+        TokenBucket bucket = new TokenBucket(rate, 1, clock::get);
+
+        assertThat(bucket.cost(rate)).isEqualTo(SECOND);
+        assertThat(bucket.cost(rate + rate / 2)).isEqualTo(SECOND + SECOND / 2);
+        assertThat(bucket.cost(rate / 4)).isEqualTo(SECOND / 4);
+    }
+
+    @Test
+    void rejectsNonPositiveRates() {
+        assertThatThrownBy(() -> new TokenBucket(0, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}